@@ -0,0 +1,32 @@
+#!/bin/sh
+# Compares startup time and resident memory of the JVM and native builds of one application.
+# Usage: scripts/compare-native.sh [account|customer] (after mvn -Pnative package with the matching main class)
+set -e
+
+APP=${1:-account}
+PORT=18080
+cd "$(dirname "$0")/.."
+
+measure() {
+  label=$1
+  shift
+  start=$(date +%s%N)
+  "$@" --server.port=$PORT > "target/$APP-$label.log" 2>&1 &
+  pid=$!
+  until grep -q "Started" "target/$APP-$label.log"; do
+    if ! kill -0 $pid 2>/dev/null; then
+      echo "$label: application exited, see target/$APP-$label.log"
+      return 1
+    fi
+    sleep 0.05
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  curl -s -o /dev/null "http://localhost:$PORT/actuator/health" || true
+  rss=$(ps -o rss= -p $pid | tr -d ' ')
+  kill $pid
+  wait $pid 2>/dev/null || true
+  printf "%-8s startup %6d ms   RSS %7d KB\n" "$label" "$elapsed" "$rss"
+}
+
+measure jvm java -jar target/test-pour-ne-plus-douter-0.0.1-SNAPSHOT-exec.jar
+measure native "target/$APP"
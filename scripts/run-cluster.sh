@@ -0,0 +1,26 @@
+#!/bin/sh
+# Starts a local cluster of account nodes on consecutive ports, all sharing the database of application.yml.
+# Usage: scripts/run-cluster.sh [nodes] [first port] (after mvn package), Ctrl-C stops every node.
+set -e
+
+NODES=${1:-3}
+FIRST_PORT=${2:-8081}
+cd "$(dirname "$0")/.."
+
+JAR=$(ls target/*.jar | grep -v original | head -n 1)
+LAST_PORT=$((FIRST_PORT + NODES - 1))
+MEMBERS=$(seq -s, -f "http://localhost:%g" "$FIRST_PORT" "$LAST_PORT")
+
+pids=""
+trap 'kill $pids 2>/dev/null' INT TERM EXIT
+for port in $(seq "$FIRST_PORT" "$LAST_PORT"); do
+  java -jar "$JAR" \
+    --server.port="$port" \
+    --account.cluster.enabled=true \
+    --account.cluster.self="http://localhost:$port" \
+    --account.cluster.nodes="$MEMBERS" \
+    > "target/cluster-$port.log" 2>&1 &
+  pids="$pids $!"
+  echo "node http://localhost:$port, logs in target/cluster-$port.log"
+done
+wait
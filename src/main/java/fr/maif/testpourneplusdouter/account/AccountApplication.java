@@ -3,8 +3,10 @@ package fr.maif.testpourneplusdouter.account;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = SqlInitializationAutoConfiguration.class)
+@EnableScheduling
 public class AccountApplication {
 
 	public static void main(String[] args) {
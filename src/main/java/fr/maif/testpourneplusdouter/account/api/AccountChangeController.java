@@ -0,0 +1,80 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.AccountChange;
+import fr.maif.testpourneplusdouter.account.repository.AccountChangeRepository;
+import fr.maif.testpourneplusdouter.account.service.OutboxRelay;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import io.vavr.control.Either;
+
+/**
+ * Change feed of account balances. Consumers pass the {@code next} token of the previous batch as {@code after}
+ * to resume, and may long-poll with {@code waitMs} instead of polling each account.
+ */
+@RestController
+@PostgresStorage
+public class AccountChangeController {
+    private static final Map<Error, ResponseEntity<ChangeFeedDTO>> ERROR_RESPONSES = AccountController.errorResponses(ChangeFeedDTO::error);
+    private static final int MAX_LIMIT = 1000;
+    private static final long MAX_WAIT_MS = 30_000;
+
+    private final AccountChangeRepository repository;
+    private final OutboxRelay relay;
+
+    public AccountChangeController(AccountChangeRepository repository, OutboxRelay relay) {
+        this.repository = repository;
+        this.relay = relay;
+    }
+
+    @GetMapping("/accounts/_changes")
+    public CompletableFuture<ResponseEntity<ChangeFeedDTO>> changes(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "waitMs", defaultValue = "0") long waitMs
+    ) {
+        final int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        final Either<Error, List<AccountChange>> changes = repository.readChanges(after, boundedLimit);
+        if(waitMs <= 0 || changes.isLeft() || !changes.get().isEmpty()) {
+            return CompletableFuture.completedFuture(toResponse(after, changes));
+        }
+
+        return relay.awaitChangesAfter(after, Duration.ofMillis(Math.min(waitMs, MAX_WAIT_MS)))
+                .thenApplyAsync(__ -> toResponse(after, repository.readChanges(after, boundedLimit)));
+    }
+
+    static ResponseEntity<ChangeFeedDTO> toResponse(long after, Either<Error, List<AccountChange>> maybeChanges) {
+        return maybeChanges.fold(
+                ERROR_RESPONSES::get,
+                changes -> new ResponseEntity<>(toDTO(after, changes), HttpStatus.OK)
+        );
+    }
+
+    static ChangeFeedDTO toDTO(long after, List<AccountChange> changes) {
+        ChangeFeedDTO dto = new ChangeFeedDTO();
+        dto.changes = changes.stream().map(AccountChangeController::toDTO).collect(Collectors.toList());
+        dto.next = String.valueOf(changes.isEmpty() ? after : changes.get(changes.size() - 1).sequence());
+
+        return dto;
+    }
+
+    static AccountChangeDTO toDTO(AccountChange change) {
+        AccountChangeDTO dto = new AccountChangeDTO();
+        dto.sequence = change.sequence();
+        dto.account = AccountController.toDTO(change.account());
+        dto.timestamp = change.timestamp();
+
+        return dto;
+    }
+}
@@ -0,0 +1,9 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.time.Instant;
+
+public class AccountChangeDTO {
+    public long sequence;
+    public AccountDTO account;
+    public Instant timestamp;
+}
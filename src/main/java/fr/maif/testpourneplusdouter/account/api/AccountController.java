@@ -1,6 +1,14 @@
 package fr.maif.testpourneplusdouter.account.api;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,83 +17,187 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import fr.maif.testpourneplusdouter.account.error.Error;
 import fr.maif.testpourneplusdouter.account.model.Account;
 import fr.maif.testpourneplusdouter.account.model.TransferResult;
 import fr.maif.testpourneplusdouter.account.service.AccountService;
+import fr.maif.testpourneplusdouter.account.service.AuditLog;
+import fr.maif.testpourneplusdouter.account.service.RateLimiter;
 import io.vavr.control.Either;
 
 @RestController
 public class AccountController {
+    private static final Map<Error, ResponseEntity<AccountDTO>> ERROR_RESPONSES = errorResponses(AccountDTO::error);
+    private static final Map<Error, ResponseEntity<TransferResultDTO>> TRANSFER_ERROR_RESPONSES = errorResponses(TransferResultDTO::error);
+    private static final Map<Error, ResponseEntity<BatchReadDTO>> BATCH_READ_ERROR_RESPONSES = errorResponses(BatchReadDTO::error);
+
+    static final String CALLER_HEADER = "X-Caller-Id";
+
     private final AccountService accountService;
+    private final RateLimiter rateLimiter;
+    private final AuditLog auditLog;
 
-    public AccountController(AccountService accountService) {
+    public AccountController(AccountService accountService, RateLimiter rateLimiter, AuditLog auditLog) {
         this.accountService = accountService;
+        this.rateLimiter = rateLimiter;
+        this.auditLog = auditLog;
     }
 
     @PostMapping("/accounts")
-    public CompletableFuture<ResponseEntity<AccountDTO>> openAccount(@RequestBody AccountDTO account) {
+    public CompletableFuture<ResponseEntity<AccountDTO>> openAccount(
+            @RequestBody AccountDTO account,
+            HttpServletRequest httpRequest
+    ) {
+        final String caller = caller(httpRequest);
         return accountService.open(account.customer, account.balance)
-            .thenApply(AccountController::toResponse);
+            .thenApply(result -> {
+                final String id = result.map(Account::id).getOrNull();
+                auditLog.publish("OPEN", id, null, account.balance, caller, result.swap().getOrNull());
+                return toResponse(result);
+            });
     }
 
     @PostMapping("/accounts/{id}/_withdraw")
     public ResponseEntity<AccountDTO> withdraw(
             @PathVariable("id") String id,
-            @RequestBody BalanceModificationRequest request
+            @RequestBody BalanceModificationRequest request,
+            HttpServletRequest httpRequest
     ) {
-        return toResponse(accountService.withdraw(id, request.amount));
+        final String caller = caller(httpRequest);
+        if(!rateLimiter.tryAcquire(id, caller)) {
+            auditLog.publish("WITHDRAW", id, null, request.amount, caller, Error.RATE_LIMITED);
+            return ERROR_RESPONSES.get(Error.RATE_LIMITED);
+        }
+        final Either<Error, Account> result = accountService.withdraw(id, request.amount);
+        auditLog.publish("WITHDRAW", id, null, request.amount, caller, result.swap().getOrNull());
+        return toResponse(result);
     }
 
     @PostMapping("/accounts/{id}/_deposit")
     public ResponseEntity<AccountDTO> deposit(
             @PathVariable("id") String id,
-            @RequestBody BalanceModificationRequest request
+            @RequestBody BalanceModificationRequest request,
+            HttpServletRequest httpRequest
     ) {
-        return toResponse(accountService.deposit(id, request.amount));
+        final Either<Error, Account> result = accountService.deposit(id, request.amount);
+        auditLog.publish("DEPOSIT", id, null, request.amount, caller(httpRequest), result.swap().getOrNull());
+        return toResponse(result);
     }
 
     @PostMapping("/accounts/{from}/{to}/_transfer")
     public ResponseEntity<TransferResultDTO> deposit(
             @PathVariable("from") String from,
             @PathVariable("to") String to,
-            @RequestBody BalanceModificationRequest request
+            @RequestBody BalanceModificationRequest request,
+            HttpServletRequest httpRequest
     ) {
-        return toTransferResponse(accountService.transfer(from, to, request.amount));
+        final String caller = caller(httpRequest);
+        if(!rateLimiter.tryAcquire(from, caller)) {
+            auditLog.publish("TRANSFER", from, to, request.amount, caller, Error.RATE_LIMITED);
+            return TRANSFER_ERROR_RESPONSES.get(Error.RATE_LIMITED);
+        }
+        final Either<Error, TransferResult> result = accountService.transfer(from, to, request.amount);
+        auditLog.publish("TRANSFER", from, to, request.amount, caller, result.swap().getOrNull());
+        return toTransferResponse(result);
     }
 
     @DeleteMapping("/accounts/{id}")
     public ResponseEntity<AccountDTO> close(
-            @PathVariable("id") String id
+            @PathVariable("id") String id,
+            HttpServletRequest httpRequest
     ) {
-        return toResponse(accountService.close(id));
+        final Either<Error, Account> result = accountService.close(id);
+        auditLog.publish("CLOSE", id, null, null, caller(httpRequest), result.swap().getOrNull());
+        return toResponse(result);
     }
 
 
+    /**
+     * The ETag is the version of the account: clients sending it back in If-None-Match get an empty 304 until the
+     * account changes.
+     */
     @GetMapping("/accounts/{id}")
     public ResponseEntity<AccountDTO> read(
-            @PathVariable("id") String id
+            @PathVariable("id") String id,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch
     ) {
-        return toResponse(accountService.read(id));
+        return accountService.read(id).fold(
+                ERROR_RESPONSES::get,
+                account -> {
+                    final String etag = etag(account);
+                    if(matches(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(toDTO(account));
+                }
+        );
+    }
+
+    @PostMapping("/accounts/_read")
+    public ResponseEntity<BatchReadDTO> readAll(@RequestBody BatchReadRequest request) {
+        return accountService.readAll(request.ids == null ? List.of() : request.ids).fold(
+                BATCH_READ_ERROR_RESPONSES::get,
+                results -> new ResponseEntity<>(toDTO(results), HttpStatus.OK)
+        );
+    }
+
+
+    /**
+     * Integrators identify themselves with the X-Caller-Id header, others are identified by their address.
+     */
+    static String caller(HttpServletRequest request) {
+        final String caller = request.getHeader(CALLER_HEADER);
+        return caller != null ? caller : request.getRemoteAddr();
+    }
+
+    static String etag(Account account) {
+        return "\"" + account.version() + "\"";
     }
 
+    /**
+     * Weak comparison of an If-None-Match header, which may list several tags, with the current tag.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+        for(String candidate : ifNoneMatch.split(",")) {
+            final String tag = candidate.trim();
+            if(tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     static ResponseEntity<TransferResultDTO> toTransferResponse(Either<Error, TransferResult> maybeTransferResult) {
         return maybeTransferResult.fold(
-                error -> new ResponseEntity<>(TransferResultDTO.error(error), error.status),
+                TRANSFER_ERROR_RESPONSES::get,
                 account -> new ResponseEntity<>(toDTO(account), HttpStatus.OK)
         );
     }
 
     static ResponseEntity<AccountDTO> toResponse(Either<Error, Account> maybeAccount) {
         return maybeAccount.fold(
-                error -> new ResponseEntity<>(AccountDTO.error(error), error.status),
+                ERROR_RESPONSES::get,
                 account -> new ResponseEntity<>(toDTO(account), HttpStatus.OK)
         );
     }
 
+    /**
+     * Error responses only depend on the {@link Error} constant, they are built once and shared across requests.
+     */
+    static <T> Map<Error, ResponseEntity<T>> errorResponses(Function<Error, T> toBody) {
+        final Map<Error, ResponseEntity<T>> responses = new EnumMap<>(Error.class);
+        for(Error error : Error.values()) {
+            responses.put(error, new ResponseEntity<>(toBody.apply(error), error.status));
+        }
+        return Collections.unmodifiableMap(responses);
+    }
+
     static AccountDTO toDTO(Account account) {
         AccountDTO dto = new AccountDTO();
         dto.balance = account.balance();
@@ -96,6 +208,21 @@ public class AccountController {
         return dto;
     }
 
+    static BatchReadDTO toDTO(Map<String, Either<Error, Account>> results) {
+        BatchReadDTO dto = new BatchReadDTO();
+        dto.accounts = new ArrayList<>(results.size());
+        results.forEach((id, result) -> dto.accounts.add(result.fold(
+                error -> {
+                    AccountDTO accountDTO = AccountDTO.error(error);
+                    accountDTO.id = id;
+                    return accountDTO;
+                },
+                AccountController::toDTO
+        )));
+
+        return dto;
+    }
+
 
     static TransferResultDTO toDTO(TransferResult result) {
         TransferResultDTO dto = new TransferResultDTO();
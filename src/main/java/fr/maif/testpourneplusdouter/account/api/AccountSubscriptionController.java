@@ -0,0 +1,96 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.service.AccountService;
+import fr.maif.testpourneplusdouter.account.service.BalanceHub;
+
+@RestController
+public class AccountSubscriptionController {
+    private final AccountService accountService;
+    private final BalanceHub hub;
+    private final long timeoutMs;
+
+    public AccountSubscriptionController(
+            AccountService accountService,
+            BalanceHub hub,
+            @Value("${account.subscriptions.timeout-ms:300000}") long timeoutMs
+    ) {
+        this.accountService = accountService;
+        this.hub = hub;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Streams the current balance of the account, then every update of it, as "balance" server-sent events.
+     * The subscription is made before reading the account so that no update is missed in between, and balances are
+     * only sent in increasing version order, since an update and the initial read can reach the emitter in any order.
+     */
+    @GetMapping(value = "/accounts/{id}/_subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable("id") String id) {
+        final SseEmitter emitter = new SseEmitter(timeoutMs);
+        final BalanceSender sender = new BalanceSender(emitter);
+        final Runnable unsubscribe = hub.subscribe(id, sender);
+
+        accountService.read(id).fold(
+                error -> {
+                    unsubscribe.run();
+                    send(emitter, "error", AccountDTO.error(error));
+                    emitter.complete();
+                    return null;
+                },
+                account -> {
+                    emitter.onCompletion(unsubscribe);
+                    emitter.onTimeout(unsubscribe);
+                    emitter.onError(__ -> unsubscribe.run());
+                    sender.accept(account);
+                    return null;
+                }
+        );
+
+        return emitter;
+    }
+
+    /**
+     * Sends a balance only if its version is greater than the last one sent.
+     */
+    static final class BalanceSender implements Consumer<Account> {
+        private final SseEmitter emitter;
+        private long lastVersion = Long.MIN_VALUE;
+
+        BalanceSender(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void accept(Account account) {
+            if(account.version() <= lastVersion) {
+                return;
+            }
+            lastVersion = account.version();
+            sendBalance(emitter, account);
+        }
+    }
+
+    static void sendBalance(SseEmitter emitter, Account account) {
+        send(emitter, "balance", AccountController.toDTO(account));
+    }
+
+    static void send(SseEmitter emitter, String name, AccountDTO dto) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(dto, MediaType.APPLICATION_JSON));
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gradient based concurrency limit: the limit shrinks when the latency of recent requests rises above the long term
+ * average latency (requests are queueing somewhere, typically on the database), and grows back by a small queue
+ * allowance while latency stays flat.
+ * Callers that can't get a permit wait at most {@code maxQueueTime}, then are rejected.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_ALPHA = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxQueueTimeNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxQueueTime, TimeUnit unit) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueueTimeNanos = unit.toNanos(maxQueueTime);
+    }
+
+    public boolean acquire() {
+        if(tryAcquire()) {
+            return true;
+        }
+        if(maxQueueTimeNanos <= 0) {
+            return false;
+        }
+
+        waiting.incrementAndGet();
+        lock.lock();
+        try {
+            long remaining = maxQueueTimeNanos;
+            while(!tryAcquire()) {
+                if(remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            waiting.decrementAndGet();
+        }
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inflight.get();
+            if(current >= (int) limit) {
+                return false;
+            }
+        } while(!inflight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release(long rttNanos) {
+        final int inflightAtCompletion = inflight.getAndDecrement();
+        onSample(rttNanos, inflightAtCompletion);
+        if(waiting.get() > 0) {
+            lock.lock();
+            try {
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    synchronized void onSample(long rttNanos, int inflightAtCompletion) {
+        final double rtt = Math.max(1, rttNanos);
+        if(longRtt == 0) {
+            longRtt = rtt;
+            return;
+        }
+        longRtt = longRtt * (1 - LONG_RTT_ALPHA) + rtt * LONG_RTT_ALPHA;
+        if(longRtt / rtt > 2) {
+            // latency went back down after a slow period, forget the slow baseline faster
+            longRtt *= 0.95;
+        }
+
+        // don't grow the limit while it is not even used
+        if(inflightAtCompletion < limit / 2 && rtt <= longRtt) {
+            return;
+        }
+
+        final double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        final double queueAllowance = Math.sqrt(limit);
+        final double newLimit = limit * gradient + queueAllowance;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+}
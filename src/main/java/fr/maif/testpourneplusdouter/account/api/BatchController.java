@@ -0,0 +1,64 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.BalanceAdjustment;
+import fr.maif.testpourneplusdouter.account.model.BatchRun;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.service.BatchEngine;
+import io.vavr.control.Either;
+
+/**
+ * Interest and fee runs. {@code POST} starts a run, or resumes it when it was interrupted, and answers right away;
+ * {@code GET} follows its progress.
+ */
+@RestController
+@PostgresStorage
+public class BatchController {
+    private static final Map<Error, ResponseEntity<BatchRunDTO>> ERROR_RESPONSES = AccountController.errorResponses(BatchRunDTO::error);
+
+    private final BatchEngine engine;
+
+    public BatchController(BatchEngine engine) {
+        this.engine = engine;
+    }
+
+    @PostMapping("/accounts/_batches/{id}")
+    public ResponseEntity<BatchRunDTO> start(@PathVariable("id") String id, @RequestBody BatchRequest request) {
+        return toResponse(engine.start(id, new BalanceAdjustment(request.kind, request.amount)), HttpStatus.ACCEPTED);
+    }
+
+    @GetMapping("/accounts/_batches/{id}")
+    public ResponseEntity<BatchRunDTO> progress(@PathVariable("id") String id) {
+        return toResponse(engine.progress(id), HttpStatus.OK);
+    }
+
+    static ResponseEntity<BatchRunDTO> toResponse(Either<Error, BatchRun> maybeRun, HttpStatus status) {
+        return maybeRun.fold(
+                ERROR_RESPONSES::get,
+                run -> new ResponseEntity<>(toDTO(run), status)
+        );
+    }
+
+    static BatchRunDTO toDTO(BatchRun run) {
+        BatchRunDTO dto = new BatchRunDTO();
+        dto.id = run.id();
+        dto.kind = run.adjustment().kind();
+        dto.amount = run.adjustment().amount();
+        dto.startedAt = run.startedAt();
+        dto.finishedAt = run.finishedAt();
+        dto.processed = run.processed();
+        dto.partitionsDone = run.partitionsDone();
+
+        return dto;
+    }
+}
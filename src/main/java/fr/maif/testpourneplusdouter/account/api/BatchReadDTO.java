@@ -0,0 +1,17 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class BatchReadDTO {
+    public List<AccountDTO> accounts;
+    public String error;
+
+    static BatchReadDTO error(Error error) {
+        BatchReadDTO dto = new BatchReadDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
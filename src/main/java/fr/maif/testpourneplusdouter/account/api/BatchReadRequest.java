@@ -0,0 +1,7 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.List;
+
+public class BatchReadRequest {
+    public List<String> ids;
+}
@@ -0,0 +1,10 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+
+import fr.maif.testpourneplusdouter.account.model.BalanceAdjustment;
+
+public class BatchRequest {
+    public BalanceAdjustment.Kind kind;
+    public BigDecimal amount;
+}
@@ -0,0 +1,25 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.BalanceAdjustment;
+
+public class BatchRunDTO {
+    public String id;
+    public BalanceAdjustment.Kind kind;
+    public BigDecimal amount;
+    public Instant startedAt;
+    public Instant finishedAt;
+    public long processed;
+    public int partitionsDone;
+    public String error;
+
+    static BatchRunDTO error(Error error) {
+        BatchRunDTO dto = new BatchRunDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
@@ -0,0 +1,18 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class ChangeFeedDTO {
+    public List<AccountChangeDTO> changes;
+    public String next;
+    public String error;
+
+    static ChangeFeedDTO error(Error error) {
+        ChangeFeedDTO dto = new ChangeFeedDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
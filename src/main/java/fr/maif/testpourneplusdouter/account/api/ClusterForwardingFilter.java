@@ -0,0 +1,148 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.service.ClusterMembership;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Forwards requests on an account owned by another node of the cluster to that node, and relays its response.
+ * The account is the first path segment after {@code /accounts/}, the source account for transfers. Endpoints that
+ * aren't about a single account ({@code /accounts/_read}, {@code /accounts/_changes}...) and balance subscriptions,
+ * which any node can serve from the change feed, are handled locally.
+ * <p>
+ * Forwarded requests carry a header that makes the receiving node handle them locally, so that two nodes with
+ * different views of the cluster can't forward a request back and forth. They also carry the caller of the original
+ * request in {@code X-Caller-Id}, its address when it didn't send one, so that the owner rate limits and audits the
+ * client rather than the forwarding node.
+ */
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterForwardingFilter.class);
+    static final String FORWARDED_HEADER = "X-Account-Cluster-Forwarded";
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            "Content-Type", "Accept", "If-None-Match", "traceparent", "tracestate"
+    );
+    private static final List<String> RELAYED_RESPONSE_HEADERS = List.of("Content-Type", "ETag", "Retry-After");
+
+    private final ClusterMembership membership;
+    private final HttpClient client;
+    private final Duration timeout;
+    private final Counter forwarded;
+    private final Counter failures;
+    private final NegotiatedErrorBody unavailableBody;
+
+    public ClusterForwardingFilter(
+            ClusterMembership membership,
+            Duration timeout,
+            MeterRegistry registry,
+            ObjectMapper mapper
+    ) throws JsonProcessingException {
+        this.membership = membership;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.forwarded = registry.counter("account.cluster.forwarded");
+        this.failures = registry.counter("account.cluster.forward.failures");
+        this.unavailableBody = new NegotiatedErrorBody(Error.OWNER_UNAVAILABLE, mapper);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !membership.isEnabled()
+                || request.getHeader(FORWARDED_HEADER) != null
+                || request.getRequestURI().endsWith("/_subscribe");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final String accountId = routingKey(request.getRequestURI());
+        if(accountId == null || membership.isOwner(accountId)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        forward(membership.ownerOf(accountId), request, response);
+    }
+
+    /**
+     * Account a request is about, null for requests that aren't about a single account.
+     */
+    static String routingKey(String path) {
+        final int start = path.indexOf("/accounts/");
+        if(start < 0) {
+            return null;
+        }
+        final String rest = path.substring(start + "/accounts/".length());
+        final int end = rest.indexOf('/');
+        final String accountId = end < 0 ? rest : rest.substring(0, end);
+        return accountId.isEmpty() || accountId.startsWith("_") ? null : accountId;
+    }
+
+    void forward(String owner, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final String query = request.getQueryString();
+        final HttpRequest.Builder forwardedRequest = HttpRequest.newBuilder()
+                .uri(URI.create(owner + request.getRequestURI() + (query == null ? "" : "?" + query)))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, membership.self())
+                .header(AccountController.CALLER_HEADER, AccountController.caller(request))
+                .method(request.getMethod(), HttpRequest.BodyPublishers.ofByteArray(request.getInputStream().readAllBytes()));
+        for(String header : FORWARDED_REQUEST_HEADERS) {
+            final String value = request.getHeader(header);
+            if(value != null) {
+                forwardedRequest.header(header, value);
+            }
+        }
+
+        final HttpResponse<byte[]> ownerResponse;
+        try {
+            ownerResponse = client.send(forwardedRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException exception) {
+            failures.increment();
+            LOGGER.warn("Could not forward {} {} to {}: {}", request.getMethod(), request.getRequestURI(), owner, exception.getMessage());
+            unavailable(request, response);
+            return;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            unavailable(request, response);
+            return;
+        }
+
+        forwarded.increment();
+        response.setStatus(ownerResponse.statusCode());
+        for(String header : RELAYED_RESPONSE_HEADERS) {
+            ownerResponse.headers().firstValue(header).ifPresent(value -> response.setHeader(header, value));
+        }
+        response.setContentLength(ownerResponse.body().length);
+        response.getOutputStream().write(ownerResponse.body());
+    }
+
+    void unavailable(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final MediaType mediaType = unavailableBody.select(request.getHeader("Accept"));
+        final byte[] body = unavailableBody.body(mediaType);
+        response.setStatus(Error.OWNER_UNAVAILABLE.status.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(mediaType.toString());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
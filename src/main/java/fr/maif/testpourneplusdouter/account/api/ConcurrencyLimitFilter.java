@@ -0,0 +1,118 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Puts account endpoints behind two adaptive concurrency limits, one for reads and one for mutations, and answers
+ * 503 right away when a request can't get a permit in time.
+ * Long lived requests (SSE subscriptions, change feed long polling) are not limited.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final Counter readRejections;
+    private final Counter writeRejections;
+    private final NegotiatedErrorBody overloadedBody;
+
+    public ConcurrencyLimitFilter(
+            AdaptiveConcurrencyLimiter readLimiter,
+            AdaptiveConcurrencyLimiter writeLimiter,
+            MeterRegistry registry,
+            ObjectMapper mapper
+    ) throws JsonProcessingException {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+        this.readRejections = registry.counter("account.limiter.rejections", "kind", "read");
+        this.writeRejections = registry.counter("account.limiter.rejections", "kind", "write");
+        registry.gauge("account.limiter.limit", Tags.of("kind", "read"), readLimiter, AdaptiveConcurrencyLimiter::limit);
+        registry.gauge("account.limiter.limit", Tags.of("kind", "write"), writeLimiter, AdaptiveConcurrencyLimiter::limit);
+        this.overloadedBody = new NegotiatedErrorBody(Error.OVERLOADED, mapper);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        final String path = request.getRequestURI();
+        return path.endsWith("/_subscribe") || path.endsWith("/accounts/_changes");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        final boolean read = HttpMethod.GET.matches(request.getMethod()) || request.getRequestURI().endsWith("/accounts/_read");
+        final AdaptiveConcurrencyLimiter limiter = read ? readLimiter : writeLimiter;
+        if(!limiter.acquire()) {
+            (read ? readRejections : writeRejections).increment();
+            reject(request, response);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final AtomicBoolean released = new AtomicBoolean(false);
+        final Runnable release = () -> {
+            if(released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - start);
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if(request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingAsyncListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final MediaType mediaType = overloadedBody.select(request.getHeader("Accept"));
+        final byte[] body = overloadedBody.body(mediaType);
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(mediaType.toString());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    record ReleasingAsyncListener(Runnable release) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public class MovementDTO {
+    public long id;
+    public Instant at;
+    public BigDecimal amount;
+    public BigDecimal balance;
+    public String counterpart;
+}
@@ -0,0 +1,60 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+/**
+ * Error body of filters that answer before content negotiation, serialized once in each format the API produces.
+ * The format is picked from the Accept header like the message converters would, JSON being the default.
+ */
+final class NegotiatedErrorBody {
+    static final MediaType APPLICATION_SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final Map<MediaType, byte[]> bodies = new LinkedHashMap<>();
+
+    NegotiatedErrorBody(Error error, ObjectMapper mapper) throws JsonProcessingException {
+        final Map<String, String> body = Map.of("error", error.message);
+        bodies.put(MediaType.APPLICATION_JSON, mapper.writeValueAsBytes(body));
+        bodies.put(MediaType.APPLICATION_CBOR, new ObjectMapper(new CBORFactory()).writeValueAsBytes(body));
+        bodies.put(APPLICATION_SMILE, new ObjectMapper(new SmileFactory()).writeValueAsBytes(body));
+    }
+
+    /**
+     * First format accepted by the client, by decreasing quality, or JSON when none of them is.
+     */
+    MediaType select(String accept) {
+        if(accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_JSON;
+        }
+        final List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException exception) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptable);
+        for(MediaType candidate : acceptable) {
+            for(MediaType produced : bodies.keySet()) {
+                if(candidate.includes(produced)) {
+                    return produced;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    byte[] body(MediaType mediaType) {
+        return bodies.get(mediaType);
+    }
+}
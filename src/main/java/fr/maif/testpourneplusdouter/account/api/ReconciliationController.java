@@ -0,0 +1,74 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ReconciliationReport;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.service.ReconciliationJob;
+
+/**
+ * Balance reconciliation. {@code POST} computes a named snapshot in the background, {@code GET} reports its totals
+ * and, with {@code compareTo}, the key ranges that differ from another snapshot.
+ */
+@RestController
+@PostgresStorage
+public class ReconciliationController {
+    private static final Map<Error, ResponseEntity<ReconciliationDTO>> ERROR_RESPONSES = AccountController.errorResponses(ReconciliationDTO::error);
+
+    private final ReconciliationJob job;
+
+    public ReconciliationController(ReconciliationJob job) {
+        this.job = job;
+    }
+
+    @PostMapping("/accounts/_reconciliations/{snapshot}")
+    public ResponseEntity<ReconciliationDTO> start(
+            @PathVariable("snapshot") String snapshot,
+            @RequestParam(value = "replica", defaultValue = "false") boolean replica
+    ) {
+        return job.start(snapshot, replica).fold(
+                ERROR_RESPONSES::get,
+                started -> {
+                    ReconciliationDTO dto = new ReconciliationDTO();
+                    dto.snapshot = started;
+                    return new ResponseEntity<>(dto, HttpStatus.ACCEPTED);
+                }
+        );
+    }
+
+    @GetMapping("/accounts/_reconciliations/{snapshot}")
+    public ResponseEntity<ReconciliationDTO> report(
+            @PathVariable("snapshot") String snapshot,
+            @RequestParam(value = "compareTo", required = false) String compareTo
+    ) {
+        return job.report(snapshot, compareTo).fold(
+                ERROR_RESPONSES::get,
+                report -> ResponseEntity.ok(toDTO(report))
+        );
+    }
+
+    static ReconciliationDTO toDTO(ReconciliationReport report) {
+        ReconciliationDTO dto = new ReconciliationDTO();
+        dto.snapshot = report.snapshot();
+        dto.accounts = report.accounts();
+        dto.total = report.total();
+        dto.root = report.root();
+        dto.comparedTo = report.comparedTo();
+        dto.comparedTotal = report.comparedTotal();
+        dto.mismatchingRanges = report.mismatchingRanges().stream()
+                .map(range -> (range.lower() == null ? "" : range.lower()) + ".." + (range.upper() == null ? "" : range.upper()))
+                .collect(Collectors.toList());
+
+        return dto;
+    }
+}
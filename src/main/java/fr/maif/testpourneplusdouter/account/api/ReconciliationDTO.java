@@ -0,0 +1,24 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class ReconciliationDTO {
+    public String snapshot;
+    public long accounts;
+    public BigDecimal total;
+    public String root;
+    public String comparedTo;
+    public BigDecimal comparedTotal;
+    public List<String> mismatchingRanges;
+    public String error;
+
+    static ReconciliationDTO error(Error error) {
+        ReconciliationDTO dto = new ReconciliationDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
@@ -0,0 +1,85 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.service.FlightRecordings;
+import jdk.jfr.Recording;
+
+/**
+ * {@code /actuator/recordings}: list flight recordings, start one ({@code POST} with optional {@code settings} and
+ * {@code durationSeconds}), download what a recording holds ({@code GET /{id}}), stop it while keeping its data for a
+ * last download ({@code DELETE /{id}}) and discard it ({@code DELETE /{id}?discard=true}).
+ */
+@Component
+@Endpoint(id = "recordings")
+public class RecordingEndpoint {
+    private final FlightRecordings recordings;
+
+    public record RecordingDTO(long id, String name, String state, Instant startTime, long size) {
+        static RecordingDTO of(Recording recording) {
+            return new RecordingDTO(
+                    recording.getId(),
+                    recording.getName(),
+                    recording.getState().name(),
+                    recording.getStartTime(),
+                    recording.getSize()
+            );
+        }
+    }
+
+    public RecordingEndpoint(FlightRecordings recordings) {
+        this.recordings = recordings;
+    }
+
+    @ReadOperation
+    public List<RecordingDTO> recordings() {
+        return recordings.recordings().stream().map(RecordingDTO::of).collect(Collectors.toList());
+    }
+
+    @WriteOperation
+    public RecordingDTO start(@Nullable String settings, @Nullable Long durationSeconds) throws IOException, ParseException {
+        final Duration duration = durationSeconds == null ? null : Duration.ofSeconds(durationSeconds);
+        return RecordingDTO.of(recordings.start(settings == null ? "profile" : settings, duration));
+    }
+
+    @ReadOperation
+    public Resource dump(@Selector long id) throws IOException {
+        return recordings.dump(id).map(RecordingEndpoint::deletedOnceSent).orElse(null);
+    }
+
+    /**
+     * Streams the dump from disk and deletes it when the stream is closed, once the response is written.
+     */
+    static Resource deletedOnceSent(Path file) {
+        return new FileSystemResource(file) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+            }
+        };
+    }
+
+    @DeleteOperation
+    public RecordingDTO stop(@Selector long id, @Nullable Boolean discard) {
+        return (Boolean.TRUE.equals(discard) ? recordings.close(id) : recordings.stop(id)).map(RecordingDTO::of).orElse(null);
+    }
+}
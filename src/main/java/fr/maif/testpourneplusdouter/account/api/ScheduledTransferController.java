@@ -0,0 +1,98 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.time.Period;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ScheduledTransfer;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.service.TransferScheduler;
+import io.vavr.control.Either;
+
+/**
+ * Future-dated transfers and standing orders of an account, executed by the {@link TransferScheduler}.
+ */
+@RestController
+@PostgresStorage
+public class ScheduledTransferController {
+    private static final Map<Error, ResponseEntity<ScheduledTransferDTO>> ERROR_RESPONSES = AccountController.errorResponses(ScheduledTransferDTO::error);
+    private static final Map<Error, ResponseEntity<ScheduledTransfersDTO>> LIST_ERROR_RESPONSES = AccountController.errorResponses(ScheduledTransfersDTO::error);
+
+    private final TransferScheduler scheduler;
+
+    public ScheduledTransferController(TransferScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @PostMapping("/accounts/{id}/_scheduled-transfers")
+    public ResponseEntity<ScheduledTransferDTO> schedule(
+            @PathVariable("id") String id,
+            @RequestBody ScheduledTransferRequest request
+    ) {
+        final Period recurrence;
+        try {
+            recurrence = request.recurrence == null ? null : Period.parse(request.recurrence);
+        } catch (DateTimeParseException exception) {
+            return ERROR_RESPONSES.get(Error.INVALID_SCHEDULED_TRANSFER);
+        }
+        return toResponse(
+                scheduler.schedule(id, request.target, request.amount, request.executeAt, recurrence),
+                HttpStatus.CREATED
+        );
+    }
+
+    @GetMapping("/accounts/{id}/_scheduled-transfers")
+    public ResponseEntity<ScheduledTransfersDTO> list(@PathVariable("id") String id) {
+        return scheduler.list(id).fold(
+                LIST_ERROR_RESPONSES::get,
+                transfers -> {
+                    ScheduledTransfersDTO dto = new ScheduledTransfersDTO();
+                    dto.transfers = transfers.stream()
+                            .map(ScheduledTransferController::toDTO)
+                            .collect(Collectors.toList());
+                    return new ResponseEntity<>(dto, HttpStatus.OK);
+                }
+        );
+    }
+
+    @DeleteMapping("/accounts/{id}/_scheduled-transfers/{transferId}")
+    public ResponseEntity<ScheduledTransferDTO> cancel(
+            @PathVariable("id") String id,
+            @PathVariable("transferId") String transferId
+    ) {
+        return toResponse(scheduler.cancel(id, transferId), HttpStatus.OK);
+    }
+
+    static ResponseEntity<ScheduledTransferDTO> toResponse(Either<Error, ScheduledTransfer> maybeTransfer, HttpStatus status) {
+        return maybeTransfer.fold(
+                ERROR_RESPONSES::get,
+                transfer -> new ResponseEntity<>(toDTO(transfer), status)
+        );
+    }
+
+    static ScheduledTransferDTO toDTO(ScheduledTransfer transfer) {
+        ScheduledTransferDTO dto = new ScheduledTransferDTO();
+        dto.id = transfer.id();
+        dto.source = transfer.source();
+        dto.target = transfer.target();
+        dto.amount = transfer.amount();
+        dto.recurrence = transfer.isRecurring() ? transfer.recurrence().toString() : null;
+        dto.nextExecution = transfer.status() == ScheduledTransfer.Status.SCHEDULED ? transfer.executeAt() : null;
+        dto.status = transfer.status();
+        dto.executions = transfer.executions();
+        dto.lastError = transfer.lastError();
+
+        return dto;
+    }
+}
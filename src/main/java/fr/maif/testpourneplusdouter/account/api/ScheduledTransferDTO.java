@@ -0,0 +1,27 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ScheduledTransfer;
+
+public class ScheduledTransferDTO {
+    public String id;
+    public String source;
+    public String target;
+    public BigDecimal amount;
+    public String recurrence;
+    public Instant nextExecution;
+    public ScheduledTransfer.Status status;
+    public int executions;
+    public String lastError;
+    public String error;
+
+    static ScheduledTransferDTO error(Error error) {
+        ScheduledTransferDTO dto = new ScheduledTransferDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
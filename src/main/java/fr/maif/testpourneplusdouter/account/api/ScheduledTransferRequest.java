@@ -0,0 +1,15 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public class ScheduledTransferRequest {
+    public String target;
+    public BigDecimal amount;
+    public Instant executeAt;
+    /**
+     * ISO-8601 period between two executions of a standing order ({@code P1M}, {@code P7D}...), absent for a one-off
+     * transfer.
+     */
+    public String recurrence;
+}
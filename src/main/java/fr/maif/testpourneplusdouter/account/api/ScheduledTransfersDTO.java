@@ -0,0 +1,17 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class ScheduledTransfersDTO {
+    public List<ScheduledTransferDTO> transfers;
+    public String error;
+
+    static ScheduledTransfersDTO error(Error error) {
+        ScheduledTransfersDTO dto = new ScheduledTransfersDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
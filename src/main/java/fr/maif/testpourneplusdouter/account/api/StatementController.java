@@ -0,0 +1,73 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Movement;
+import fr.maif.testpourneplusdouter.account.model.MovementPage;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.service.StatementService;
+import io.vavr.control.Either;
+
+/**
+ * Account statements. Pages are read in time order; the {@code next} token of a page is passed as {@code after}
+ * to read the following one, and is null on the last page.
+ */
+@RestController
+@PostgresStorage
+public class StatementController {
+    private static final Map<Error, ResponseEntity<StatementDTO>> ERROR_RESPONSES = AccountController.errorResponses(StatementDTO::error);
+
+    private final StatementService statementService;
+
+    public StatementController(StatementService statementService) {
+        this.statementService = statementService;
+    }
+
+    @GetMapping("/accounts/{id}/movements")
+    public ResponseEntity<StatementDTO> movements(
+            @PathVariable("id") String id,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        return toResponse(statementService.movements(id, from, to, after, limit));
+    }
+
+    static ResponseEntity<StatementDTO> toResponse(Either<Error, MovementPage> maybePage) {
+        return maybePage.fold(
+                ERROR_RESPONSES::get,
+                page -> new ResponseEntity<>(toDTO(page), HttpStatus.OK)
+        );
+    }
+
+    static StatementDTO toDTO(MovementPage page) {
+        StatementDTO dto = new StatementDTO();
+        dto.movements = page.movements().stream().map(StatementController::toDTO).collect(Collectors.toList());
+        dto.next = page.next();
+
+        return dto;
+    }
+
+    static MovementDTO toDTO(Movement movement) {
+        MovementDTO dto = new MovementDTO();
+        dto.id = movement.id();
+        dto.at = movement.at();
+        dto.amount = movement.amount();
+        dto.balance = movement.balance();
+        dto.counterpart = movement.counterpart();
+
+        return dto;
+    }
+}
@@ -0,0 +1,18 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class StatementDTO {
+    public List<MovementDTO> movements;
+    public String next;
+    public String error;
+
+    static StatementDTO error(Error error) {
+        StatementDTO dto = new StatementDTO();
+        dto.error = error.message;
+
+        return dto;
+    }
+}
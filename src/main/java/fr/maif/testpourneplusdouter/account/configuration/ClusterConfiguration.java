@@ -0,0 +1,43 @@
+package fr.maif.testpourneplusdouter.account.configuration;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.maif.testpourneplusdouter.account.api.ClusterForwardingFilter;
+import fr.maif.testpourneplusdouter.account.service.ClusterMembership;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class ClusterConfiguration {
+
+    /**
+     * Runs right after the tracing filter and before the concurrency limits, so that forwarded requests take a
+     * permit on the node that executes them only.
+     */
+    @Bean
+    public FilterRegistrationBean<ClusterForwardingFilter> clusterForwardingFilter(
+            ClusterMembership membership,
+            @Value("${account.cluster.forward-timeout-ms:2000}") long forwardTimeoutMs,
+            MeterRegistry registry,
+            ObjectMapper mapper
+    ) throws JsonProcessingException {
+        final ClusterForwardingFilter filter = new ClusterForwardingFilter(
+                membership,
+                Duration.ofMillis(forwardTimeoutMs),
+                registry,
+                mapper
+        );
+        final FilterRegistrationBean<ClusterForwardingFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/accounts/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
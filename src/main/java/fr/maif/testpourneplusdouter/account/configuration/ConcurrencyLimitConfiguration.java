@@ -0,0 +1,43 @@
+package fr.maif.testpourneplusdouter.account.configuration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.maif.testpourneplusdouter.account.api.AdaptiveConcurrencyLimiter;
+import fr.maif.testpourneplusdouter.account.api.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Configuration
+public class ConcurrencyLimitConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${account.limiter.read.initial:50}") int readInitial,
+            @Value("${account.limiter.read.min:5}") int readMin,
+            @Value("${account.limiter.read.max:200}") int readMax,
+            @Value("${account.limiter.read.max-queue-ms:20}") long readMaxQueueMs,
+            @Value("${account.limiter.write.initial:20}") int writeInitial,
+            @Value("${account.limiter.write.min:2}") int writeMin,
+            @Value("${account.limiter.write.max:100}") int writeMax,
+            @Value("${account.limiter.write.max-queue-ms:50}") long writeMaxQueueMs,
+            MeterRegistry registry,
+            ObjectMapper mapper
+    ) throws JsonProcessingException {
+        final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+                new AdaptiveConcurrencyLimiter(readInitial, readMin, readMax, readMaxQueueMs, TimeUnit.MILLISECONDS),
+                new AdaptiveConcurrencyLimiter(writeInitial, writeMin, writeMax, writeMaxQueueMs, TimeUnit.MILLISECONDS),
+                registry,
+                mapper
+        );
+        final FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/accounts", "/accounts/*");
+        return registration;
+    }
+}
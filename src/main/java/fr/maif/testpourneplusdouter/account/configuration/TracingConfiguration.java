@@ -0,0 +1,79 @@
+package fr.maif.testpourneplusdouter.account.configuration;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+/**
+ * OpenTelemetry setup shared by the account and customer applications: W3C trace context propagation and OTLP
+ * export of sampled spans. Tracing is a no-op unless {@code tracing.enabled} is set.
+ */
+@Configuration
+public class TracingConfiguration {
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    @Bean(destroyMethod = "")
+    public OpenTelemetry openTelemetry(
+            @Value("${tracing.enabled:false}") boolean enabled,
+            @Value("${tracing.service-name:}") String serviceName,
+            @Value("${tracing.otlp.endpoint:http://localhost:4317}") String endpoint,
+            @Value("${tracing.sample-ratio:1.0}") double sampleRatio,
+            ApplicationContext context
+    ) {
+        if(!enabled) {
+            return OpenTelemetry.noop();
+        }
+        final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(
+                        Attributes.of(SERVICE_NAME, serviceName.isBlank() ? applicationName(context) : serviceName)
+                )))
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)))
+                .addSpanProcessor(BatchSpanProcessor.builder(
+                        OtlpGrpcSpanExporter.builder().setEndpoint(endpoint).build()
+                ).build())
+                .build();
+        Runtime.getRuntime().addShutdownHook(new Thread(tracerProvider::close, "tracer-provider-shutdown"));
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+
+    @Bean
+    public FilterRegistrationBean<TracingFilter> tracingFilter(OpenTelemetry openTelemetry) {
+        final FilterRegistrationBean<TracingFilter> registration =
+                new FilterRegistrationBean<>(new TracingFilter(openTelemetry));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * "account" or "customer", from the {@code @SpringBootApplication} class the context was started with.
+     */
+    static String applicationName(ApplicationContext context) {
+        final Map<String, Object> applications = context.getBeansWithAnnotation(SpringBootApplication.class);
+        return applications.keySet().stream()
+                .findFirst()
+                .map(name -> name.replace("Application", ""))
+                .orElse("application");
+    }
+}
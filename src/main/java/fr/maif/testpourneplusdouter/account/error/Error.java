@@ -16,7 +16,25 @@ public enum Error {
     NEGATIVE_BALANCE_AT_ACCOUNT_OPENING("Impossible d'ouvrir un compte avec un solde négatif", HttpStatus.BAD_REQUEST),
     NEGATIVE_WITHDRAW("Impossible de retirer un montant négatif", HttpStatus.BAD_REQUEST),
     NEGATIVE_DEPOSIT("Impossible de déposer un montant négatif", HttpStatus.BAD_REQUEST),
-    NEGATIVE_TRANSFER("Impossible de transférer un montant négatif", HttpStatus.BAD_REQUEST);;
+    NEGATIVE_TRANSFER("Impossible de transférer un montant négatif", HttpStatus.BAD_REQUEST),
+    SAME_ACCOUNT_TRANSFER("Impossible de transférer vers le compte source", HttpStatus.BAD_REQUEST),
+    OVERLOADED("Service surchargé, veuillez réessayer plus tard", HttpStatus.SERVICE_UNAVAILABLE),
+    RATE_LIMITED("Trop de requêtes sur ce compte, veuillez réessayer plus tard", HttpStatus.TOO_MANY_REQUESTS),
+    TOO_MANY_ACCOUNTS("Trop de comptes demandés en une fois", HttpStatus.BAD_REQUEST),
+    INVALID_BATCH("Type ou montant de traitement invalide", HttpStatus.BAD_REQUEST),
+    BATCH_NOT_FOUND("Ce traitement n'existe pas", HttpStatus.NOT_FOUND),
+    BATCH_ALREADY_RUNNING("Ce traitement est déjà en cours", HttpStatus.CONFLICT),
+    BATCH_PARAMETERS_MISMATCH("Ce traitement a déjà été lancé avec d'autres paramètres", HttpStatus.CONFLICT),
+    SNAPSHOT_NOT_FOUND("Cet instantané de rapprochement n'existe pas", HttpStatus.NOT_FOUND),
+    RECONCILIATION_ALREADY_RUNNING("Un rapprochement est déjà en cours pour cet instantané", HttpStatus.CONFLICT),
+    REPLICA_NOT_CONFIGURED("Aucun réplica n'est configuré pour le rapprochement", HttpStatus.BAD_REQUEST),
+    INVALID_SCHEDULED_TRANSFER("Virement programmé invalide : montant, compte cible, date ou périodicité", HttpStatus.BAD_REQUEST),
+    SCHEDULED_TRANSFER_NOT_FOUND("Ce virement programmé n'existe pas ou n'est plus modifiable", HttpStatus.NOT_FOUND),
+    SCHEDULED_TRANSFER_INTERRUPTED("L'exécution du virement programmé a été interrompue, vérifiez les mouvements du compte", HttpStatus.INTERNAL_SERVER_ERROR),
+    INVALID_MOVEMENT_QUERY("Période ou curseur de relevé invalide", HttpStatus.BAD_REQUEST),
+    VELOCITY_LIMIT_EXCEEDED("Plafond de débits atteint pour cette période", HttpStatus.FORBIDDEN),
+    OWNER_UNAVAILABLE("Le nœud responsable de ce compte est injoignable, veuillez réessayer plus tard", HttpStatus.SERVICE_UNAVAILABLE),
+    CONCURRENT_MODIFICATION("Ce compte a été modifié en parallèle, veuillez réessayer", HttpStatus.CONFLICT);
 
     public final String message;
     public final HttpStatus status;
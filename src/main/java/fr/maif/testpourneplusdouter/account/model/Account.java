@@ -5,13 +5,23 @@ import java.math.BigDecimal;
 import fr.maif.testpourneplusdouter.account.error.Error;
 import io.vavr.control.Either;
 
-public record Account (String id, String customer, BigDecimal balance, boolean closed) {
+/**
+ * @param version number of saves of the account, a save only succeeds on the version it was read at
+ */
+public record Account (String id, String customer, BigDecimal balance, boolean closed, long version) {
+    /**
+     * Account that was never saved.
+     */
+    public Account(String id, String customer, BigDecimal balance, boolean closed) {
+        this(id, customer, balance, closed, 0);
+    }
+
     public Either<Error, Account> deposit(BigDecimal deposit) {
         if(closed) {
             return Either.left(Error.ACCOUNT_CLOSED);
         }
 
-        return Either.right(new Account(id, customer, balance.add(deposit), false));
+        return Either.right(new Account(id, customer, balance.add(deposit), false, version));
     }
 
     public Either<Error, Account> withdraw(BigDecimal withdraw) {
@@ -21,7 +31,7 @@ public record Account (String id, String customer, BigDecimal balance, boolean c
 
         BigDecimal newAmount = balance.subtract(withdraw);
         if (newAmount.compareTo(BigDecimal.ZERO) > 0) {
-            return Either.right(new Account(id, customer, newAmount, false));
+            return Either.right(new Account(id, customer, newAmount, false, version));
         } else {
             return Either.left(Error.INSUFFICIENT_BALANCE);
         }
@@ -0,0 +1,5 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.time.Instant;
+
+public record AccountChange(long sequence, Account account, Instant timestamp) { }
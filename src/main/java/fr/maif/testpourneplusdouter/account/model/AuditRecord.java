@@ -0,0 +1,17 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Account mutation requested through the API: who asked for what, and the error it failed with, null on success.
+ */
+public record AuditRecord(
+        Instant at,
+        String operation,
+        String accountId,
+        String targetAccountId,
+        BigDecimal amount,
+        String caller,
+        String error
+) { }
@@ -0,0 +1,28 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Periodic balance adjustment applied by batch runs: interest at {@code amount} rate on positive balances, or a fee
+ * of {@code amount} which never takes a balance below zero.
+ */
+public record BalanceAdjustment(Kind kind, BigDecimal amount) {
+    public enum Kind {
+        INTEREST,
+        FEE
+    }
+
+    /**
+     * @return the amount to add to the balance, zero when the account is left untouched
+     */
+    public BigDecimal delta(BigDecimal balance) {
+        if(balance.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return switch(kind) {
+            case INTEREST -> balance.multiply(amount).setScale(2, RoundingMode.HALF_EVEN);
+            case FEE -> amount.min(balance).negate();
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.time.Instant;
+
+/**
+ * State of a batch run: its parameters, when it started and finished (null while running or interrupted), and
+ * its checkpointed progress.
+ */
+public record BatchRun(
+        String id,
+        BalanceAdjustment adjustment,
+        Instant startedAt,
+        Instant finishedAt,
+        long processed,
+        int partitionsDone
+) { }
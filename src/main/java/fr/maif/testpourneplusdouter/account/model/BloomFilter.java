@@ -0,0 +1,60 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+/**
+ * Bloom filter of case insensitive ids, shared by the customer application (which builds it) and the account
+ * application (which queries it).
+ */
+public record BloomFilter(int bitCount, int hashCount, long[] bits) {
+
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        final long insertions = Math.max(1, expectedInsertions);
+        final long optimalBits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        final int bitCount = (int) Math.min(Integer.MAX_VALUE - 64, Math.max(64, optimalBits));
+        final int hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * Math.log(2)));
+
+        return new BloomFilter(bitCount, hashCount, new long[(bitCount + 63) / 64]);
+    }
+
+    public void put(CharSequence id) {
+        final long hash = hash(id);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for(int i = 1; i <= hashCount; i++) {
+            final int bit = index(hash1 + i * hash2);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(CharSequence id) {
+        final long hash = hash(id);
+        final int hash1 = (int) hash;
+        final int hash2 = (int) (hash >>> 32);
+        for(int i = 1; i <= hashCount; i++) {
+            final int bit = index(hash1 + i * hash2);
+            if((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public double expectedFalsePositiveRate(long insertions) {
+        return Math.pow(1 - Math.exp(-(double) hashCount * insertions / bitCount), hashCount);
+    }
+
+    int index(int combinedHash) {
+        return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitCount;
+    }
+
+    static long hash(CharSequence id) {
+        long hash = 0xCBF29CE484222325L;
+        for(int i = 0; i < id.length(); i++) {
+            hash = (hash ^ Character.toLowerCase(id.charAt(i))) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,3 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+public record CustomerFilters(long version, long customerCount, long bannedCount, BloomFilter customers, BloomFilter banned) { }
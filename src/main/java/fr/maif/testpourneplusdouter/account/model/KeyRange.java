@@ -0,0 +1,25 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range {@code [lower, upper)} of account ids, a null bound meaning unbounded, used to split full table scans.
+ */
+public record KeyRange(int index, String lower, String upper) {
+    /**
+     * {@code 16^digits} ranges split on the first hexadecimal digits of the id: together they cover every id, and
+     * random UUIDs spread evenly among them.
+     */
+    public static List<KeyRange> hexPrefixes(int digits) {
+        final int count = 1 << (4 * digits);
+        final List<KeyRange> ranges = new ArrayList<>(count);
+        String lower = null;
+        for(int index = 0; index < count; index++) {
+            final String upper = index == count - 1 ? null : String.format("%0" + digits + "x", index + 1);
+            ranges.add(new KeyRange(index, lower, upper));
+            lower = upper;
+        }
+        return ranges;
+    }
+}
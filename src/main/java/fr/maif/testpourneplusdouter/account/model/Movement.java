@@ -0,0 +1,9 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Balance change of an account: the signed amount, the balance it led to and, for transfers, the other account.
+ */
+public record Movement(long id, String accountId, Instant at, BigDecimal amount, BigDecimal balance, String counterpart) { }
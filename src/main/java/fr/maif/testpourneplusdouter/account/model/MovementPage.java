@@ -0,0 +1,44 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Page of an account statement. {@code next} is the cursor of the following page, null on the last one.
+ */
+public record MovementPage(List<Movement> movements, String next) {
+    /**
+     * Position of a movement in {@code (at, id)} order, the order pages are read in.
+     */
+    public record Cursor(Instant at, long id) {
+        @Override
+        public String toString() {
+            return at + "~" + id;
+        }
+
+        public static Optional<Cursor> parse(String cursor) {
+            final int separator = cursor.lastIndexOf('~');
+            if(separator < 0) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(new Cursor(
+                        Instant.parse(cursor.substring(0, separator)),
+                        Long.parseLong(cursor.substring(separator + 1))
+                ));
+            } catch (DateTimeParseException | NumberFormatException exception) {
+                return Optional.empty();
+            }
+        }
+    }
+
+    public static MovementPage of(List<Movement> movements, int limit) {
+        if(movements.size() < limit) {
+            return new MovementPage(movements, null);
+        }
+        final Movement last = movements.get(movements.size() - 1);
+        return new MovementPage(movements, new Cursor(last.at(), last.id()).toString());
+    }
+}
@@ -0,0 +1,70 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Number of accounts, sum of balances and SHA-256 digest of the rows of one {@link KeyRange}.
+ */
+public record RangeChecksum(int partition, long accounts, BigDecimal total, String digest) {
+    /**
+     * Root of the binary hash tree whose leaves are the range digests, in partition order: two scans with the same
+     * root hold the same data, and when roots differ the mismatching ranges are the leaves that differ.
+     */
+    public static String merkleRoot(List<RangeChecksum> checksums) {
+        if(checksums.isEmpty()) {
+            return null;
+        }
+        List<byte[]> level = new ArrayList<>(checksums.size());
+        for(RangeChecksum checksum : checksums) {
+            level.add(fromHex(checksum.digest()));
+        }
+        while(level.size() > 1) {
+            final List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+            for(int i = 0; i < level.size(); i += 2) {
+                if(i + 1 == level.size()) {
+                    parents.add(level.get(i));
+                } else {
+                    final MessageDigest digest = sha256();
+                    digest.update(level.get(i));
+                    digest.update(level.get(i + 1));
+                    parents.add(digest.digest());
+                }
+            }
+            level = parents;
+        }
+        return toHex(level.get(0));
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is required on every JVM", exception);
+        }
+    }
+
+    public static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String toHex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for(byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    static byte[] fromHex(String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex, 2 * i, 2 * i + 2, 16);
+        }
+        return bytes;
+    }
+}
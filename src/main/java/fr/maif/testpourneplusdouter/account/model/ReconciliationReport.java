@@ -0,0 +1,75 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Totals of a snapshot and, when it is compared to another one, the ranges whose content differs.
+ */
+public record ReconciliationReport(
+        String snapshot,
+        long accounts,
+        BigDecimal total,
+        String root,
+        String comparedTo,
+        BigDecimal comparedTotal,
+        List<KeyRange> mismatchingRanges
+) {
+    public static ReconciliationReport of(String snapshot, List<RangeChecksum> checksums) {
+        return new ReconciliationReport(
+                snapshot,
+                accounts(checksums),
+                total(checksums),
+                RangeChecksum.merkleRoot(checksums),
+                null,
+                null,
+                List.of()
+        );
+    }
+
+    /**
+     * Checksums are in partition order. When they don't come from the same split as {@code ranges}, every range is
+     * reported as mismatching.
+     */
+    public static ReconciliationReport compare(
+            String snapshot,
+            List<RangeChecksum> checksums,
+            String other,
+            List<RangeChecksum> otherChecksums,
+            List<KeyRange> ranges
+    ) {
+        final String root = RangeChecksum.merkleRoot(checksums);
+        final List<KeyRange> mismatches = new ArrayList<>();
+        if(!Objects.equals(root, RangeChecksum.merkleRoot(otherChecksums))) {
+            if(checksums.size() != ranges.size() || otherChecksums.size() != ranges.size()) {
+                mismatches.addAll(ranges);
+            } else {
+                for(KeyRange range : ranges) {
+                    final String digest = checksums.get(range.index()).digest();
+                    if(!digest.equals(otherChecksums.get(range.index()).digest())) {
+                        mismatches.add(range);
+                    }
+                }
+            }
+        }
+        return new ReconciliationReport(
+                snapshot,
+                accounts(checksums),
+                total(checksums),
+                root,
+                other,
+                total(otherChecksums),
+                mismatches
+        );
+    }
+
+    private static long accounts(List<RangeChecksum> checksums) {
+        return checksums.stream().mapToLong(RangeChecksum::accounts).sum();
+    }
+
+    private static BigDecimal total(List<RangeChecksum> checksums) {
+        return checksums.stream().map(RangeChecksum::total).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
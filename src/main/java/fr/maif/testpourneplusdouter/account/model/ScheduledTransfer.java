@@ -0,0 +1,40 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.time.ZoneOffset;
+
+/**
+ * Transfer to execute at {@code executeAt}. Standing orders have a recurrence and stay {@link Status#SCHEDULED}:
+ * occurrence {@code n} is due at {@code startAt + n * recurrence}, {@code executeAt} being the occurrence number
+ * {@code executions}.
+ */
+public record ScheduledTransfer(
+        String id,
+        String source,
+        String target,
+        BigDecimal amount,
+        Instant startAt,
+        Period recurrence,
+        Instant executeAt,
+        Status status,
+        int executions,
+        String lastError
+) {
+    public enum Status {
+        SCHEDULED, EXECUTING, DONE, FAILED, CANCELLED
+    }
+
+    public boolean isRecurring() {
+        return recurrence != null;
+    }
+
+    /**
+     * Occurrence following the one due at {@code executeAt}. It is computed from the start on UTC dates, so that an
+     * order started on the 31st comes back to the 31st after shorter months.
+     */
+    public Instant nextExecution() {
+        return startAt.atOffset(ZoneOffset.UTC).plus(recurrence.multipliedBy(executions + 1)).toInstant();
+    }
+}
@@ -0,0 +1,122 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import io.vavr.control.Either;
+
+/**
+ * Cold storage of accounts closed for long. {@link #archive} moves them, batch by batch, from {@code account} (and
+ * their stripes) to {@code account_archive}, keeping the hot table and its indexes down to the accounts in use.
+ * <p>
+ * {@link PostgresAccountRepository} falls back to the archive for ids it doesn't find, so archived accounts are still
+ * read as closed accounts, on which every modification is refused.
+ */
+@Repository
+@PostgresStorage
+public class AccountArchiveRepository {
+    private final JdbcSupport jdbc;
+
+    public AccountArchiveRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Archives at most {@code limit} accounts closed for more than {@code closedFor}, oldest first, in one statement.
+     * Rows locked by another archiver are skipped.
+     *
+     * @return the number of archived accounts
+     */
+    public Either<Error, Integer> archive(Duration closedFor, int limit) {
+        return jdbc.withConnection("account_archive.archive", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                WITH archived AS (
+                    DELETE FROM account WHERE id IN (
+                        SELECT id FROM account
+                        WHERE closed AND closed_at < now() - ? * interval '1 second'
+                        ORDER BY closed_at
+                        LIMIT ?
+                        FOR UPDATE SKIP LOCKED
+                    )
+                    RETURNING id, customer, balance, version, closed_at
+                ), stripes AS (
+                    DELETE FROM account_stripe s USING archived a WHERE s.account_id = a.id
+                    RETURNING s.account_id, s.balance, s.version
+                )
+                INSERT INTO account_archive(id, customer, balance, version, closed_at)
+                SELECT a.id, a.customer,
+                    a.balance + COALESCE(sum(s.balance), 0::money),
+                    a.version + COALESCE(sum(s.version), 0)::bigint,
+                    a.closed_at
+                FROM archived a LEFT JOIN stripes s ON s.account_id = a.id
+                GROUP BY a.id, a.customer, a.balance, a.version, a.closed_at
+                """)) {
+                preparedStatement.setLong(1, closedFor.toSeconds());
+                preparedStatement.setInt(2, limit);
+
+                return Either.right(preparedStatement.executeUpdate());
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    static Optional<Account> read(Connection connection, String accountId) throws SQLException {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            SELECT id, customer, balance, version FROM account_archive WHERE id = ?
+            """)) {
+            preparedStatement.setString(1, accountId);
+
+            final ResultSet resultSet = preparedStatement.executeQuery();
+            return resultSet.next() ? Optional.of(toAccount(resultSet)) : Optional.empty();
+        }
+    }
+
+    /**
+     * Adds the archived accounts among {@code accountIds} to {@code accounts}.
+     */
+    static void readAll(Connection connection, Collection<String> accountIds, Map<String, Account> accounts) throws SQLException {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            SELECT id, customer, balance, version FROM account_archive WHERE id = ANY(?)
+            """)) {
+            preparedStatement.setArray(1, connection.createArrayOf("varchar", accountIds.toArray()));
+
+            final ResultSet resultSet = preparedStatement.executeQuery();
+            while(resultSet.next()) {
+                final Account account = toAccount(resultSet);
+                accounts.put(account.id(), account);
+            }
+        }
+    }
+
+    static Optional<Account> findByCustomer(Connection connection, String customerId) throws SQLException {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            SELECT id, customer, balance, version FROM account_archive WHERE customer = ? LIMIT 1
+            """)) {
+            preparedStatement.setString(1, customerId);
+
+            final ResultSet resultSet = preparedStatement.executeQuery();
+            return resultSet.next() ? Optional.of(toAccount(resultSet)) : Optional.empty();
+        }
+    }
+
+    private static Account toAccount(ResultSet resultSet) throws SQLException {
+        return new Account(
+                resultSet.getString("id"),
+                resultSet.getString("customer"),
+                resultSet.getBigDecimal("balance"),
+                true,
+                resultSet.getLong("version")
+        );
+    }
+}
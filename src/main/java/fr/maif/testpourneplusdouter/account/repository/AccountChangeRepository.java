@@ -0,0 +1,95 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.AccountChange;
+import io.vavr.control.Either;
+
+/**
+ * Reads the {@code account_outbox} table filled by {@link AccountRepository}.
+ */
+@Repository
+@PostgresStorage
+public class AccountChangeRepository {
+    private final JdbcSupport jdbc;
+
+    public AccountChangeRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Only returns changes of transactions older than every running transaction, so that a change committed late
+     * with a smaller sequence is not skipped by consumers resuming after a bigger one.
+     */
+    public Either<Error, List<AccountChange>> readChanges(long after, int limit) {
+        return jdbc.withConnection("account_outbox.readChanges", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT id, account_id, customer, balance, closed, version, created_at FROM account_outbox
+                WHERE id > ? AND tx < txid_snapshot_xmin(txid_current_snapshot())
+                ORDER BY id
+                LIMIT ?
+                """)) {
+                preparedStatement.setLong(1, after);
+                preparedStatement.setInt(2, limit);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                final List<AccountChange> changes = new ArrayList<>();
+                while(resultSet.next()) {
+                    changes.add(new AccountChange(
+                            resultSet.getLong("id"),
+                            new Account(
+                                    resultSet.getString("account_id"),
+                                    resultSet.getString("customer"),
+                                    resultSet.getBigDecimal("balance"),
+                                    resultSet.getBoolean("closed"),
+                                    resultSet.getLong("version")
+                            ),
+                            resultSet.getTimestamp("created_at").toInstant()
+                    ));
+                }
+
+                return Either.right(changes);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    public Either<Error, Long> lastSequence() {
+        return jdbc.withConnection("account_outbox.lastSequence", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT COALESCE(max(id), 0) FROM account_outbox
+                """)) {
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                resultSet.next();
+
+                return Either.right(resultSet.getLong(1));
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    public Either<Error, Integer> purgeOlderThan(Duration retention) {
+        return jdbc.withConnection("account_outbox.purge", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                DELETE FROM account_outbox WHERE created_at < now() - ? * interval '1 second'
+                """)) {
+                preparedStatement.setLong(1, retention.toSeconds());
+
+                return Either.right(preparedStatement.executeUpdate());
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+}
@@ -0,0 +1,237 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+
+/**
+ * Append-only journal of account states, written through fixed size memory-mapped regions of a single file.
+ * <p>
+ * A frame is {@code [length][crc32c][payload]} and holds the accounts saved by one operation, so that both sides of
+ * a transfer are replayed together or not at all. A frame never spans two regions: when it doesn't fit, a skip marker
+ * sends readers to the next region. A zero length ends the journal; replay stops at the first frame whose checksum
+ * doesn't match, which is what a write torn by a crash looks like.
+ * <p>
+ * The account count of a payload has its high bit set when entries end with the account version. Frames written
+ * before versions were journaled don't, their accounts are replayed at version 0.
+ * <p>
+ * Appends must be serialized by the caller. {@link #sync} implements group commit: the thread that gets to force the
+ * file flushes everything appended so far, and threads whose frames were covered return without forcing again.
+ */
+class AccountJournal implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountJournal.class);
+    private static final int HEADER_SIZE = 8;
+    private static final int END = 0;
+    private static final int SKIP_TO_NEXT_REGION = -1;
+    private static final int VERSIONED = 0x8000;
+
+    private final FileChannel channel;
+    private final long regionSize;
+    private final List<MappedByteBuffer> regions = new CopyOnWriteArrayList<>();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private volatile long appended;
+    private volatile long durable;
+
+    AccountJournal(Path file, long regionSize) throws IOException {
+        if(regionSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Journal regions are limited to 2GB");
+        }
+        this.channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        this.regionSize = regionSize;
+    }
+
+    /**
+     * Applies every complete frame, in order, and positions the journal after the last one.
+     */
+    long replay(Consumer<Account> apply) throws IOException {
+        long position = 0;
+        int frames = 0;
+        while(position < channel.size()) {
+            final MappedByteBuffer region = region(position);
+            final int offset = offsetOf(position);
+            if(offset + HEADER_SIZE > regionSize) {
+                position = nextRegion(position);
+                continue;
+            }
+            final int length = region.getInt(offset);
+            if(length == SKIP_TO_NEXT_REGION) {
+                position = nextRegion(position);
+                continue;
+            }
+            if(length == END) {
+                break;
+            }
+            if(length < 0 || offset + HEADER_SIZE + length > regionSize) {
+                LOGGER.warn("Invalid frame length {} at {}, ignoring the end of the journal", length, position);
+                break;
+            }
+            final byte[] payload = new byte[length];
+            region.get(offset + HEADER_SIZE, payload);
+            if(checksum(payload) != region.getInt(offset + 4)) {
+                LOGGER.warn("Torn frame at {}, ignoring the end of the journal", position);
+                break;
+            }
+            decode(payload).forEach(apply);
+            position += HEADER_SIZE + length;
+            frames++;
+        }
+        terminate(position);
+        appended = position;
+        durable = position;
+        LOGGER.info("Replayed {} journal frames ({} bytes)", frames, position);
+        return position;
+    }
+
+    /**
+     * @return the position to {@link #sync} for this frame to be durable
+     */
+    long append(Collection<Account> accounts) throws IOException {
+        final byte[] payload = encode(accounts);
+        final int frameSize = HEADER_SIZE + payload.length;
+        if(frameSize + 4 > regionSize) {
+            throw new IOException("Frame of " + frameSize + " bytes doesn't fit in a journal region");
+        }
+        long position = appended;
+        if(offsetOf(position) + frameSize > regionSize) {
+            if(offsetOf(position) + 4 <= regionSize) {
+                region(position).putInt(offsetOf(position), SKIP_TO_NEXT_REGION);
+            }
+            position = nextRegion(position);
+        }
+        final MappedByteBuffer region = region(position);
+        final int offset = offsetOf(position);
+        region.putInt(offset + 4, checksum(payload));
+        region.put(offset + HEADER_SIZE, payload);
+        region.putInt(offset, payload.length);
+        terminate(position + frameSize);
+        appended = position + frameSize;
+        return appended;
+    }
+
+    void sync(long position) {
+        if(durable >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if(durable >= position) {
+                return;
+            }
+            final long target = appended;
+            long from = durable;
+            while(from < target) {
+                final int index = (int) (from / regionSize);
+                final long regionEnd = (index + 1) * regionSize;
+                final long to = Math.min(target, regionEnd);
+                regions.get(index).force(offsetOf(from), (int) (to - from));
+                from = to;
+            }
+            durable = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    long size() {
+        return appended;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync(appended);
+        channel.close();
+    }
+
+    /**
+     * Marks the end of the journal after the last frame, unless the region is full.
+     */
+    private void terminate(long position) throws IOException {
+        if(offsetOf(position) + 4 <= regionSize) {
+            region(position).putInt(offsetOf(position), END);
+        }
+    }
+
+    private MappedByteBuffer region(long position) throws IOException {
+        final int index = (int) (position / regionSize);
+        while(regions.size() <= index) {
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, regions.size() * regionSize, regionSize));
+        }
+        return regions.get(index);
+    }
+
+    private int offsetOf(long position) {
+        return (int) (position % regionSize);
+    }
+
+    private long nextRegion(long position) {
+        return (position / regionSize + 1) * regionSize;
+    }
+
+    static int checksum(byte[] payload) {
+        final CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static byte[] encode(Collection<Account> accounts) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * accounts.size());
+        try(final DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeShort(accounts.size() | VERSIONED);
+            for(Account account : accounts) {
+                output.writeUTF(account.id());
+                output.writeBoolean(account.customer() != null);
+                if(account.customer() != null) {
+                    output.writeUTF(account.customer());
+                }
+                output.writeLong(AccountTable.toCents(account.balance()));
+                output.writeBoolean(account.closed());
+                output.writeLong(account.version());
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Account> decode(byte[] payload) throws IOException {
+        try(final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final int header = input.readUnsignedShort();
+            final boolean versioned = (header & VERSIONED) != 0;
+            final int count = header & ~VERSIONED;
+            final Account[] accounts = new Account[count];
+            for(int i = 0; i < count; i++) {
+                final String id = input.readUTF();
+                final String customer = input.readBoolean() ? input.readUTF() : null;
+                final BigDecimal balance = AccountTable.fromCents(input.readLong());
+                final boolean closed = input.readBoolean();
+                accounts[i] = new Account(id, customer, balance, closed, versioned ? input.readLong() : 0);
+            }
+            return List.of(accounts);
+        }
+    }
+}
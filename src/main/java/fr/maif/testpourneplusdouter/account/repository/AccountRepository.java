@@ -1,142 +1,68 @@
 package fr.maif.testpourneplusdouter.account.repository;
 
 import java.math.BigDecimal;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
-
-import javax.annotation.PostConstruct;
-import javax.sql.DataSource;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Repository;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import fr.maif.testpourneplusdouter.account.error.Error;
 import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.TransferResult;
 import io.vavr.control.Either;
 
-@Repository
-public class AccountRepository {
-    private static final Logger LOGGER = LoggerFactory.getLogger(AccountRepository.class);
-    private final DataSource dataSource;
-
-    public AccountRepository(DataSource dataSource) {
-        this.dataSource = dataSource;
-    }
-
-
-    @PostConstruct
-    public void setupDBIfNeeded() throws SQLException {
-        try(final PreparedStatement preparedStatement = dataSource.getConnection().prepareStatement("""
-            CREATE TABLE IF NOT EXISTS account (
-                id varchar(100) PRIMARY KEY,
-                customer varchar(100),
-                balance money,
-                closed boolean
-            );
-            """
-        )) {
-            preparedStatement.execute();
-        }
-    }
-
-    public Either<Error, Account> save(Account account) {
-        try {
-            return save(account, dataSource.getConnection());
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
-        }
-    }
-
-    public Either<Error, Account> save(Account account, Connection connection) {
-        try (final PreparedStatement preparedStatement = connection
-                .prepareStatement("""
-                        INSERT INTO account(id, customer, balance, closed)
-                        VALUES (?, ?, ?, ?)
-                        ON CONFLICT (id) DO UPDATE
-                            SET customer = EXCLUDED.customer, balance = EXCLUDED.balance, closed = EXCLUDED.closed
-                        RETURNING id, customer, balance, closed
-                    """)
-        ) {
-
-
-            preparedStatement.setString(1, account.id());
-            preparedStatement.setString(2, account.customer());
-            preparedStatement.setBigDecimal(3, account.balance());
-            preparedStatement.setBoolean(4, account.closed());
-
-            final ResultSet result = preparedStatement.executeQuery();
-
-            return mapDBResult(result);
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
-        }
-    }
-
-    public Either<Error, Account> read(String accountId) {
-        try {
-            return read(accountId, dataSource.getConnection());
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
-        }
-    }
-
-    public Either<Error, Account> read(String accountId, Connection connection) {
-        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
-            SELECT * FROM account WHERE account.id = ?
-            """)) {
-            preparedStatement.setString(1, accountId);
-
-            final ResultSet resultSet = preparedStatement.executeQuery();
-
-            if(!resultSet.isBeforeFirst()) {
-                return Either.left(Error.ACCOUNT_NOT_FOUND);
+/**
+ * Storage of accounts. The implementation is chosen with {@code account.storage}: {@code postgres} (default) or
+ * {@code embedded}. Implementations publish an {@link AccountSavedEvent} for every committed account state.
+ */
+public interface AccountRepository {
+    Either<Error, Account> read(String accountId);
+
+    Either<Error, Account> save(Account account);
+
+    Either<Error, Optional<Account>> searchAccountForCustomer(String customerId);
+
+    /**
+     * Reads both accounts, applies the transfer and saves both resulting accounts atomically: either both are saved
+     * or none is.
+     */
+    Either<Error, TransferResult> transfer(
+            String from,
+            String to,
+            BiFunction<Account, Account, Either<Error, TransferResult>> transfer
+    );
+
+    /**
+     * Ids that don't match any account are absent from the result.
+     */
+    default Either<Error, Map<String, Account>> readAll(Collection<String> accountIds) {
+        final Map<String, Account> accounts = new HashMap<>();
+        for(String accountId : accountIds) {
+            final Either<Error, Account> account = read(accountId);
+            if(account.isLeft() && account.getLeft() != Error.ACCOUNT_NOT_FOUND) {
+                return Either.left(account.getLeft());
             }
-
-            return mapDBResult(resultSet);
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
+            account.forEach(found -> accounts.put(found.id(), found));
         }
+        return Either.right(accounts);
     }
 
-    public Either<Error, Optional<Account>> searchAccountForCustomer(String customerId) {
-        try(final PreparedStatement preparedStatement = dataSource.getConnection().prepareStatement("""
-            SELECT * FROM account WHERE account.customer = ?
-            """)) {
-            preparedStatement.setString(1, customerId);
-
-            final ResultSet resultSet = preparedStatement.executeQuery();
-
-            if(!resultSet.isBeforeFirst()) {
-                return Either.right(Optional.empty());
-            }
-
-            return mapDBResult(resultSet).map(Optional::ofNullable);
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
-        }
+    /**
+     * Whether the balance of this account is spread over stripes, see {@link BalanceStriping}.
+     * Striped accounts are modified with {@link #update} and credited with {@link #depositOnStripe}; {@link #transfer}
+     * accepts them on either side.
+     */
+    default boolean isStriped(String accountId) {
+        return false;
     }
 
-    static Either<Error, Account> mapDBResult(ResultSet resultSet) {
-        try {
-            resultSet.next();
-            final String id = resultSet.getString("id");
-            final String customer = resultSet.getString("customer");
-            final BigDecimal balance = resultSet.getBigDecimal("balance");
-            final boolean closed = resultSet.getBoolean("closed");
+    default Either<Error, Account> update(String accountId, Function<Account, Either<Error, Account>> modification) {
+        return read(accountId).flatMap(modification).flatMap(this::save);
+    }
 
-            return Either.right(new Account(id, customer, balance, closed));
-        } catch (SQLException exception) {
-            LOGGER.error("SQL error while accessing DB", exception);
-            return Either.left(Error.DB_ERROR);
-        }
+    default Either<Error, Account> depositOnStripe(String accountId, BigDecimal amount) {
+        return update(accountId, account -> account.deposit(amount));
     }
 }
@@ -0,0 +1,8 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+
+/**
+ * Published by {@link AccountRepository} once a new account state has been committed.
+ */
+public record AccountSavedEvent(Account account) { }
@@ -0,0 +1,161 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+
+/**
+ * In-memory account store of the embedded engine: accounts are columns of parallel arrays (balances as cents in a
+ * {@code long[]}) indexed by two open addressing tables, one on the account id and one on the customer.
+ * Not thread safe, {@link EmbeddedAccountRepository} guards it with a read/write lock.
+ */
+class AccountTable {
+    private static final int EMPTY = -1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MONEY_SCALE = 2;
+
+    private int[] idSlots;
+    private int[] customerSlots;
+    private String[] ids;
+    private String[] customers;
+    private long[] balances;
+    private boolean[] closed;
+    private long[] versions;
+    private int size;
+
+    AccountTable() {
+        this(MIN_CAPACITY);
+    }
+
+    AccountTable(int expectedSize) {
+        final int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize - 1)) << 1);
+        this.ids = new String[capacity];
+        this.customers = new String[capacity];
+        this.balances = new long[capacity];
+        this.closed = new boolean[capacity];
+        this.versions = new long[capacity];
+        this.idSlots = emptySlots(capacity * 2);
+        this.customerSlots = emptySlots(capacity * 2);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Optional<Account> get(String id) {
+        final int entry = find(idSlots, ids, id);
+        return entry == EMPTY ? Optional.empty() : Optional.of(account(entry));
+    }
+
+    /**
+     * @return the version of the account, -1 when there is none with this id
+     */
+    long version(String id) {
+        final int entry = find(idSlots, ids, id);
+        return entry == EMPTY ? -1 : versions[entry];
+    }
+
+    /**
+     * First account saved for this customer.
+     */
+    Optional<Account> findByCustomer(String customer) {
+        if(customer == null) {
+            return Optional.empty();
+        }
+        final int entry = find(customerSlots, customers, customer);
+        return entry == EMPTY ? Optional.empty() : Optional.of(account(entry));
+    }
+
+    void put(Account account) {
+        int entry = find(idSlots, ids, account.id());
+        if(entry == EMPTY) {
+            if(size == ids.length) {
+                grow();
+            }
+            entry = size++;
+            ids[entry] = account.id();
+            insert(idSlots, account.id(), entry);
+            if(account.customer() != null && find(customerSlots, customers, account.customer()) == EMPTY) {
+                customers[entry] = account.customer();
+                insert(customerSlots, account.customer(), entry);
+            }
+        }
+        customers[entry] = account.customer();
+        balances[entry] = toCents(account.balance());
+        closed[entry] = account.closed();
+        versions[entry] = account.version();
+    }
+
+    void forEach(Consumer<Account> consumer) {
+        for(int entry = 0; entry < size; entry++) {
+            consumer.accept(account(entry));
+        }
+    }
+
+    Account account(int entry) {
+        return new Account(ids[entry], customers[entry], fromCents(balances[entry]), closed[entry], versions[entry]);
+    }
+
+    /**
+     * Same precision as the Postgres {@code money} type.
+     */
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(MONEY_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, MONEY_SCALE);
+    }
+
+    private int find(int[] slots, String[] keys, String key) {
+        final int mask = slots.length - 1;
+        for(int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            final int entry = slots[slot];
+            if(entry == EMPTY || key.equals(keys[entry])) {
+                return entry;
+            }
+        }
+    }
+
+    private static void insert(int[] slots, String key, int entry) {
+        final int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while(slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry;
+    }
+
+    private void grow() {
+        final int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        customers = Arrays.copyOf(customers, capacity);
+        balances = Arrays.copyOf(balances, capacity);
+        closed = Arrays.copyOf(closed, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        idSlots = emptySlots(capacity * 2);
+        customerSlots = emptySlots(capacity * 2);
+        for(int entry = 0; entry < size; entry++) {
+            insert(idSlots, ids[entry], entry);
+            final String customer = customers[entry];
+            if(customer != null && find(customerSlots, customers, customer) == EMPTY) {
+                insert(customerSlots, customer, entry);
+            }
+        }
+    }
+
+    private static int[] emptySlots(int length) {
+        final int[] slots = new int[length];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+
+    private static int hash(String key) {
+        final int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,12 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.util.List;
+
+import fr.maif.testpourneplusdouter.account.model.AuditRecord;
+
+/**
+ * Destination of the audit trail, written by a single thread in batches.
+ */
+public interface AuditSink {
+    void write(List<AuditRecord> records) throws Exception;
+}
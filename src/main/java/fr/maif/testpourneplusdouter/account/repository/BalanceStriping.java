@@ -0,0 +1,33 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opt-in striped balance mode for hot accounts: deposits on these accounts are spread over several
+ * {@code account_stripe} rows instead of all updating the same {@code account} row.
+ */
+@Component
+public class BalanceStriping {
+    private final Set<String> accounts;
+    private final int stripes;
+
+    public BalanceStriping(
+            @Value("${account.striping.accounts:}") Set<String> accounts,
+            @Value("${account.striping.stripes:8}") int stripes
+    ) {
+        this.accounts = Set.copyOf(accounts);
+        this.stripes = stripes;
+    }
+
+    public boolean isStriped(String accountId) {
+        return accounts.contains(accountId);
+    }
+
+    int randomStripe() {
+        return ThreadLocalRandom.current().nextInt(stripes);
+    }
+}
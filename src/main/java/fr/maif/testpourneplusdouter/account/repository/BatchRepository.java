@@ -0,0 +1,232 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.BalanceAdjustment;
+import fr.maif.testpourneplusdouter.account.model.BatchRun;
+import fr.maif.testpourneplusdouter.account.model.KeyRange;
+import io.vavr.control.Either;
+
+/**
+ * Runs and checkpoints of batch balance adjustments. Each chunk is read, adjusted and checkpointed in a single
+ * transaction, so that a run resumed after a crash adjusts every account exactly once.
+ */
+@Repository
+@PostgresStorage
+public class BatchRepository {
+    private final JdbcSupport jdbc;
+
+    public record Checkpoint(String lastId, boolean done) { }
+
+    public record Chunk(String lastId, int read, int adjusted, boolean last) { }
+
+    public BatchRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Creates the run, or returns it if it already exists with the same parameters.
+     */
+    public Either<Error, BatchRun> startRun(String runId, BalanceAdjustment adjustment) {
+        return jdbc.withConnection("account_batch.start", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                INSERT INTO account_batch_run(run_id, kind, amount) VALUES (?, ?, ?)
+                ON CONFLICT (run_id) DO NOTHING
+                """)) {
+                preparedStatement.setString(1, runId);
+                preparedStatement.setString(2, adjustment.kind().name());
+                preparedStatement.setBigDecimal(3, adjustment.amount());
+                preparedStatement.executeUpdate();
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+            return read(runId, connection).flatMap(run -> sameParameters(run.adjustment(), adjustment)
+                    ? Either.right(run)
+                    : Either.left(Error.BATCH_PARAMETERS_MISMATCH));
+        });
+    }
+
+    public Either<Error, BatchRun> read(String runId) {
+        return jdbc.withConnection("account_batch.read", connection -> read(runId, connection));
+    }
+
+    Either<Error, BatchRun> read(String runId, Connection connection) {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            SELECT r.run_id, r.kind, r.amount, r.started_at, r.finished_at,
+                COALESCE(sum(c.processed), 0) AS processed,
+                count(*) FILTER (WHERE c.done) AS partitions_done
+            FROM account_batch_run r LEFT JOIN account_batch_checkpoint c ON c.run_id = r.run_id
+            WHERE r.run_id = ?
+            GROUP BY r.run_id
+            """)) {
+            preparedStatement.setString(1, runId);
+
+            final ResultSet resultSet = preparedStatement.executeQuery();
+            if(!resultSet.next()) {
+                return Either.left(Error.BATCH_NOT_FOUND);
+            }
+            final Timestamp finishedAt = resultSet.getTimestamp("finished_at");
+            return Either.right(new BatchRun(
+                    resultSet.getString("run_id"),
+                    new BalanceAdjustment(
+                            BalanceAdjustment.Kind.valueOf(resultSet.getString("kind")),
+                            resultSet.getBigDecimal("amount")
+                    ),
+                    resultSet.getTimestamp("started_at").toInstant(),
+                    finishedAt == null ? null : finishedAt.toInstant(),
+                    resultSet.getLong("processed"),
+                    resultSet.getInt("partitions_done")
+            ));
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    public Either<Error, Map<Integer, Checkpoint>> checkpoints(String runId) {
+        return jdbc.withConnection("account_batch.checkpoints", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT partition, last_id, done FROM account_batch_checkpoint WHERE run_id = ?
+                """)) {
+                preparedStatement.setString(1, runId);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                final Map<Integer, Checkpoint> checkpoints = new HashMap<>();
+                while(resultSet.next()) {
+                    checkpoints.put(
+                            resultSet.getInt("partition"),
+                            new Checkpoint(resultSet.getString("last_id"), resultSet.getBoolean("done"))
+                    );
+                }
+                return Either.right(checkpoints);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Locks and adjusts the next {@code limit} open accounts of the range after {@code after} (from the start of
+     * the range when null) with one set-based update, records their new state in the outbox and the adjustment in the
+     * movements, and moves the checkpoint, all in one transaction. Striped accounts are adjusted on their aggregated balance, the delta goes to the
+     * {@code account} row.
+     */
+    public Either<Error, Chunk> processChunk(
+            String runId,
+            KeyRange range,
+            String after,
+            int limit,
+            BalanceAdjustment adjustment
+    ) {
+        return jdbc.withConnection("account_batch.chunk", connection -> jdbc.inTransaction(connection, () -> {
+            final List<String> ids = new ArrayList<>(limit);
+            final List<BigDecimal> deltas = new ArrayList<>(limit);
+            String lastId = null;
+            int read = 0;
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT a.id,
+                    a.balance + COALESCE((SELECT sum(s.balance) FROM account_stripe s WHERE s.account_id = a.id), 0::money) AS balance
+                FROM account a
+                WHERE NOT a.closed""" + KeyRangeSql.condition("a.id", range, after) + """
+
+                ORDER BY a.id
+                LIMIT ?
+                FOR UPDATE OF a
+                """)) {
+                final int next = KeyRangeSql.bind(preparedStatement, 1, range, after);
+                preparedStatement.setInt(next, limit);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                while(resultSet.next()) {
+                    lastId = resultSet.getString("id");
+                    read++;
+                    final BigDecimal delta = adjustment.delta(resultSet.getBigDecimal("balance"));
+                    if(delta.signum() != 0) {
+                        ids.add(lastId);
+                        deltas.add(delta);
+                    }
+                }
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+
+            if(!ids.isEmpty()) {
+                try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                    WITH adjustment AS (
+                        SELECT * FROM unnest(?::varchar[], ?::numeric[]) AS d(id, delta)
+                    ), updated AS (
+                        UPDATE account a SET balance = a.balance + adjustment.delta::money, version = a.version + 1
+                        FROM adjustment WHERE a.id = adjustment.id
+                        RETURNING a.id, a.customer, a.balance, a.closed, a.version
+                    ), aggregated AS (
+                        SELECT u.id, u.customer,
+                            u.balance + COALESCE((SELECT sum(s.balance) FROM account_stripe s WHERE s.account_id = u.id), 0::money) AS balance,
+                            u.closed,
+                            u.version + COALESCE((SELECT sum(s.version) FROM account_stripe s WHERE s.account_id = u.id), 0)::bigint AS version
+                        FROM updated u
+                    ), movement AS (
+                        INSERT INTO account_movement(account_id, amount, balance)
+                        SELECT g.id, adjustment.delta::money, g.balance
+                        FROM aggregated g JOIN adjustment ON adjustment.id = g.id
+                    )
+                    INSERT INTO account_outbox(account_id, customer, balance, closed, version)
+                    SELECT id, customer, balance, closed, version FROM aggregated
+                    """)) {
+                    preparedStatement.setArray(1, connection.createArrayOf("varchar", ids.toArray()));
+                    preparedStatement.setArray(2, connection.createArrayOf("numeric", deltas.toArray()));
+                    preparedStatement.executeUpdate();
+                } catch (SQLException exception) {
+                    return jdbc.dbError(exception);
+                }
+            }
+
+            final Chunk chunk = new Chunk(lastId, read, ids.size(), read < limit);
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                INSERT INTO account_batch_checkpoint(run_id, partition, last_id, processed, done) VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (run_id, partition) DO UPDATE SET
+                    last_id = COALESCE(EXCLUDED.last_id, account_batch_checkpoint.last_id),
+                    processed = account_batch_checkpoint.processed + EXCLUDED.processed,
+                    done = EXCLUDED.done
+                """)) {
+                preparedStatement.setString(1, runId);
+                preparedStatement.setInt(2, range.index());
+                preparedStatement.setString(3, lastId);
+                preparedStatement.setLong(4, read);
+                preparedStatement.setBoolean(5, chunk.last());
+                preparedStatement.executeUpdate();
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+            return Either.right(chunk);
+        }));
+    }
+
+    public Either<Error, BatchRun> finish(String runId) {
+        return jdbc.withConnection("account_batch.finish", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                UPDATE account_batch_run SET finished_at = now() WHERE run_id = ? AND finished_at IS NULL
+                """)) {
+                preparedStatement.setString(1, runId);
+                preparedStatement.executeUpdate();
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+            return read(runId, connection);
+        });
+    }
+
+    static boolean sameParameters(BalanceAdjustment stored, BalanceAdjustment requested) {
+        return stored.kind() == requested.kind() && stored.amount().compareTo(requested.amount()) == 0;
+    }
+}
@@ -0,0 +1,55 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.AuditRecord;
+import io.vavr.control.Either;
+
+/**
+ * Stores the audit trail in {@code account_audit}, one multi-row batch per drained batch of records.
+ */
+@Repository
+@PostgresStorage
+@ConditionalOnProperty(name = "account.audit.sink", havingValue = "database")
+public class DatabaseAuditSink implements AuditSink {
+    private final JdbcSupport jdbc;
+
+    public DatabaseAuditSink(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public void write(List<AuditRecord> records) {
+        final Either<Error, Integer> written = jdbc.withConnection("account_audit.write", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                INSERT INTO account_audit(at, operation, account_id, target_account_id, amount, caller, error)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """)) {
+                for(AuditRecord record : records) {
+                    preparedStatement.setTimestamp(1, Timestamp.from(record.at()));
+                    preparedStatement.setString(2, record.operation());
+                    preparedStatement.setString(3, record.accountId());
+                    preparedStatement.setString(4, record.targetAccountId());
+                    preparedStatement.setBigDecimal(5, record.amount());
+                    preparedStatement.setString(6, record.caller());
+                    preparedStatement.setString(7, record.error());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                return Either.right(records.size());
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+        if(written.isLeft()) {
+            throw new IllegalStateException("Could not write " + records.size() + " audit records: " + written.getLeft());
+        }
+    }
+}
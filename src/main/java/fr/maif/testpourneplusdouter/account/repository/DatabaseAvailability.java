@@ -0,0 +1,53 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks whether the database is known to be down, so that callers fail fast instead of opening new connections.
+ * Once the retry delay is elapsed, a single caller is let through to probe the database.
+ */
+@Component
+public class DatabaseAvailability {
+    private static final long UP = Long.MIN_VALUE;
+
+    private final long retryDelayNanos;
+    private final AtomicLong downUntil = new AtomicLong(UP);
+
+    public DatabaseAvailability(@Value("${account.db.retry-delay-ms:1000}") long retryDelayMs) {
+        this.retryDelayNanos = TimeUnit.MILLISECONDS.toNanos(retryDelayMs);
+    }
+
+    public boolean isKnownDown() {
+        final long until = downUntil.get();
+        if(until == UP) {
+            return false;
+        }
+        final long now = System.nanoTime();
+        if(now - until < 0) {
+            return true;
+        }
+        return !downUntil.compareAndSet(until, now + retryDelayNanos);
+    }
+
+    /**
+     * Whether the database was last seen down. Unlike {@link #isKnownDown()}, never hands out the recovery probe, so
+     * that observers like health checks don't take it from real requests.
+     */
+    public boolean isDown() {
+        return downUntil.get() != UP;
+    }
+
+    public void markDown() {
+        downUntil.set(System.nanoTime() + retryDelayNanos);
+    }
+
+    public void markUp() {
+        if(downUntil.get() != UP) {
+            downUntil.set(UP);
+        }
+    }
+}
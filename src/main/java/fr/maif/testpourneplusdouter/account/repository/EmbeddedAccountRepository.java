@@ -0,0 +1,219 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.TransferResult;
+import io.vavr.control.Either;
+
+/**
+ * In-process storage for edge deployments and fast integration tests, selected with
+ * {@code account.storage=embedded}: accounts live in an {@link AccountTable} and every new state is appended to an
+ * {@link AccountJournal} before the operation returns. On startup the journal is replayed, then compacted if it
+ * grew past {@code account.embedded.compact-above}.
+ * <p>
+ * Writes are serialized by a lock which is released before waiting for the journal to be forced, so that concurrent
+ * operations share the same fsync. Readers may therefore see a state a few microseconds before it is durable.
+ * Like in Postgres, an existing account is only saved if it is still at the version it was read at.
+ */
+@Repository
+@ConditionalOnProperty(name = "account.storage", havingValue = "embedded")
+public class EmbeddedAccountRepository implements AccountRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedAccountRepository.class);
+    private static final ThrottledErrorLog ERROR_LOG = new ThrottledErrorLog(LOGGER, 10, TimeUnit.SECONDS);
+    private static final String JOURNAL_FILE = "accounts.journal";
+    private static final int COMPACTION_FRAME_SIZE = 500;
+
+    private final AccountTable table = new AccountTable();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Path journalFile;
+    private final long regionSize;
+    private final boolean fsync;
+    private final ApplicationEventPublisher publisher;
+    private AccountJournal journal;
+
+    public EmbeddedAccountRepository(
+            @Value("${account.embedded.directory:./data}") Path directory,
+            @Value("${account.embedded.region-size:64MB}") DataSize regionSize,
+            @Value("${account.embedded.compact-above:256MB}") DataSize compactAbove,
+            @Value("${account.embedded.fsync:true}") boolean fsync,
+            ApplicationEventPublisher publisher
+    ) throws IOException {
+        Files.createDirectories(directory);
+        this.journalFile = directory.resolve(JOURNAL_FILE);
+        this.regionSize = regionSize.toBytes();
+        this.fsync = fsync;
+        this.publisher = publisher;
+        this.journal = new AccountJournal(journalFile, this.regionSize);
+        journal.replay(table::put);
+        if(journal.size() > compactAbove.toBytes()) {
+            compact();
+        }
+    }
+
+    @Override
+    public Either<Error, Account> read(String accountId) {
+        lock.readLock().lock();
+        try {
+            return table.get(accountId).<Either<Error, Account>>map(Either::right)
+                    .orElseGet(() -> Either.left(Error.ACCOUNT_NOT_FOUND));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Either<Error, Map<String, Account>> readAll(Collection<String> accountIds) {
+        final Map<String, Account> accounts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for(String accountId : accountIds) {
+                table.get(accountId).ifPresent(account -> accounts.put(accountId, account));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Either.right(accounts);
+    }
+
+    @Override
+    public Either<Error, Optional<Account>> searchAccountForCustomer(String customerId) {
+        lock.readLock().lock();
+        try {
+            return Either.right(table.findByCustomer(customerId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Either<Error, Account> save(Account account) {
+        return write(() -> Either.right(List.of(account))).map(saved -> saved.get(0));
+    }
+
+    /**
+     * Read, modification and save happen under the write lock, so concurrent updates of an account can't be lost.
+     */
+    @Override
+    public Either<Error, Account> update(String accountId, Function<Account, Either<Error, Account>> modification) {
+        return write(() -> read(accountId).flatMap(modification).map(List::of)).map(saved -> saved.get(0));
+    }
+
+    @Override
+    public Either<Error, TransferResult> transfer(
+            String from,
+            String to,
+            BiFunction<Account, Account, Either<Error, TransferResult>> transfer
+    ) {
+        return write(() -> read(from).flatMap(source -> read(to).flatMap(target -> transfer.apply(source, target)))
+                .map(result -> List.of(result.source(), result.target()))
+        ).map(saved -> new TransferResult(saved.get(0), saved.get(1)));
+    }
+
+    /**
+     * Computes the new states under the write lock, checks and increments their versions, journals them in a single
+     * frame and applies them to the table, then waits for the journal to be durable before publishing them.
+     */
+    Either<Error, List<Account>> write(Supplier<Either<Error, List<Account>>> modification) {
+        final Either<Error, List<Account>> result;
+        final long position;
+        lock.writeLock().lock();
+        try {
+            final Either<Error, List<Account>> modified = modification.get();
+            if(modified.isLeft()) {
+                return modified;
+            }
+            final List<Account> accounts = new ArrayList<>(modified.get().size());
+            for(Account account : modified.get()) {
+                final long current = table.version(account.id());
+                if(current >= 0 && current != account.version()) {
+                    return Either.left(Error.CONCURRENT_MODIFICATION);
+                }
+                accounts.add(current < 0 ? account : new Account(
+                        account.id(),
+                        account.customer(),
+                        account.balance(),
+                        account.closed(),
+                        current + 1
+                ));
+            }
+            result = Either.right(accounts);
+            position = journal.append(accounts);
+            accounts.forEach(table::put);
+        } catch (IOException exception) {
+            ERROR_LOG.error("Failed to append to the account journal", exception);
+            return Either.left(Error.DB_ERROR);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if(fsync) {
+            try {
+                journal.sync(position);
+            } catch (UncheckedIOException exception) {
+                ERROR_LOG.error("Failed to force the account journal", exception);
+                return Either.left(Error.DB_ERROR);
+            }
+        }
+        result.get().forEach(account -> publisher.publishEvent(new AccountSavedEvent(account)));
+        return result;
+    }
+
+    /**
+     * Rewrites the journal with one entry per account, next to the current one, and swaps the files.
+     */
+    void compact() throws IOException {
+        final Path compacted = journalFile.resolveSibling(JOURNAL_FILE + ".compacting");
+        Files.deleteIfExists(compacted);
+        final List<Account> accounts = new ArrayList<>(table.size());
+        table.forEach(accounts::add);
+        try(final AccountJournal target = new AccountJournal(compacted, regionSize)) {
+            target.replay(account -> { });
+            for(int from = 0; from < accounts.size(); from += COMPACTION_FRAME_SIZE) {
+                target.append(accounts.subList(from, Math.min(accounts.size(), from + COMPACTION_FRAME_SIZE)));
+            }
+        }
+        final long before = journal.size();
+        journal.close();
+        Files.move(compacted, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = new AccountJournal(journalFile, regionSize);
+        journal.replay(account -> { });
+        LOGGER.info("Compacted account journal from {} to {} bytes ({} accounts)", before, journal.size(), table.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fr.maif.testpourneplusdouter.account.model.AuditRecord;
+
+/**
+ * Appends the audit trail as JSON lines to one file per UTC day, {@code audit-<date>.jsonl}, flushed after each
+ * batch.
+ */
+@Component
+@ConditionalOnProperty(name = "account.audit.sink", havingValue = "file", matchIfMissing = true)
+public class FileAuditSink implements AuditSink {
+    private final Path directory;
+    private final ObjectMapper mapper;
+    private LocalDate day;
+    private BufferedWriter writer;
+
+    public FileAuditSink(@Value("${account.audit.directory:./audit}") String directory, ObjectMapper mapper) {
+        this.directory = Path.of(directory);
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void write(List<AuditRecord> records) throws IOException {
+        final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if(!today.equals(day)) {
+            close();
+            Files.createDirectories(directory);
+            writer = Files.newBufferedWriter(
+                    directory.resolve("audit-" + today + ".jsonl"),
+                    StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            );
+            day = today;
+        }
+        for(AuditRecord record : records) {
+            writer.write(mapper.writeValueAsString(record));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if(writer != null) {
+            writer.close();
+            writer = null;
+            day = null;
+        }
+    }
+}
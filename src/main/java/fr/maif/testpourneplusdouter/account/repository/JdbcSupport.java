@@ -0,0 +1,130 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.vavr.control.Either;
+
+/**
+ * Connection, transaction and error handling shared by the JDBC repositories.
+ */
+@Component
+@PostgresStorage
+public class JdbcSupport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcSupport.class);
+    private static final ThrottledErrorLog ERROR_LOG = new ThrottledErrorLog(LOGGER, 10, TimeUnit.SECONDS);
+    private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+    private static final ThreadLocal<long[]> DATABASE_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final DataSource dataSource;
+    private final DatabaseAvailability availability;
+    private final SchemaInitializer schema;
+    private final Tracer tracer;
+
+    public JdbcSupport(
+            DataSource dataSource,
+            DatabaseAvailability availability,
+            SchemaInitializer schema,
+            OpenTelemetry openTelemetry
+    ) {
+        this.dataSource = dataSource;
+        this.availability = availability;
+        this.schema = schema;
+        this.tracer = openTelemetry.getTracer("fr.maif.testpourneplusdouter");
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Cumulated time the current thread spent holding a connection, to split operation latency between the database
+     * and the rest. Only differences between two calls on the same thread are meaningful.
+     */
+    public static long databaseNanos() {
+        return DATABASE_NANOS.get()[0];
+    }
+
+    /**
+     * @param operation name of the client span covering the connection use, e.g. {@code account.read}
+     */
+    public <T> Either<Error, T> withConnection(String operation, Function<Connection, Either<Error, T>> callback) {
+        if(availability.isKnownDown()) {
+            return Either.left(Error.DB_ERROR);
+        }
+        final Span span = tracer.spanBuilder(operation)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("db.system", "postgresql")
+                .startSpan();
+        final long start = System.nanoTime();
+        try(final Scope ignored = span.makeCurrent(); final Connection connection = dataSource.getConnection()) {
+            availability.markUp();
+            schema.ensureInitialized(connection);
+            final Either<Error, T> result = callback.apply(connection);
+            if(result.isLeft()) {
+                span.setStatus(StatusCode.ERROR, result.getLeft().name());
+            }
+            return result;
+        } catch (SQLException exception) {
+            availability.markDown();
+            span.recordException(exception);
+            span.setStatus(StatusCode.ERROR);
+            ERROR_LOG.error("Failed to obtain a DB connection", exception);
+            return Either.left(Error.DB_ERROR);
+        } finally {
+            DATABASE_NANOS.get()[0] += System.nanoTime() - start;
+            span.end();
+        }
+    }
+
+    public <T> Either<Error, T> inTransaction(Connection connection, Supplier<Either<Error, T>> callback) {
+        try {
+            connection.setAutoCommit(false);
+            final Either<Error, T> result = callback.get();
+            if(result.isRight()) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+            return result;
+        } catch (SQLException exception) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackException) {
+                exception.addSuppressed(rollbackException);
+            }
+            return dbError(exception);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException exception) {
+                ERROR_LOG.error("Failed to restore autocommit", exception);
+            }
+        }
+    }
+
+    public <T> Either<Error, T> dbError(SQLException exception) {
+        final String sqlState = exception.getSQLState();
+        if(sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS)) {
+            availability.markDown();
+        }
+        ERROR_LOG.error("SQL error while accessing DB", exception);
+        return Either.left(Error.DB_ERROR);
+    }
+}
@@ -0,0 +1,47 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import fr.maif.testpourneplusdouter.account.model.KeyRange;
+
+/**
+ * Keyset conditions of {@link KeyRange} scans. Bounds are compared with the column's collation, like the primary key
+ * index, so that range scans stay index scans.
+ */
+final class KeyRangeSql {
+    private KeyRangeSql() {
+    }
+
+    /**
+     * Conditions restricting {@code column} to the range, resuming strictly after {@code after} when it is set,
+     * each one prefixed with {@code AND}.
+     */
+    static String condition(String column, KeyRange range, String after) {
+        final StringBuilder condition = new StringBuilder();
+        if(after != null) {
+            condition.append(" AND ").append(column).append(" > ?");
+        } else if(range.lower() != null) {
+            condition.append(" AND ").append(column).append(" >= ?");
+        }
+        if(range.upper() != null) {
+            condition.append(" AND ").append(column).append(" < ?");
+        }
+        return condition.toString();
+    }
+
+    /**
+     * Binds the parameters of {@link #condition}, returns the index of the next parameter.
+     */
+    static int bind(PreparedStatement preparedStatement, int index, KeyRange range, String after) throws SQLException {
+        if(after != null) {
+            preparedStatement.setString(index++, after);
+        } else if(range.lower() != null) {
+            preparedStatement.setString(index++, range.lower());
+        }
+        if(range.upper() != null) {
+            preparedStatement.setString(index++, range.upper());
+        }
+        return index;
+    }
+}
@@ -0,0 +1,147 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Movement;
+import io.vavr.control.Either;
+
+/**
+ * Balance history. {@code account_movement} is partitioned by month: each partition has a BRIN index on the time,
+ * which stays tiny since rows are appended in time order, and a btree on {@code (account_id, at, id)} that serves
+ * statement pages directly. Queries bounded in time only touch the partitions of their period.
+ * <p>
+ * Movements are written by {@link PostgresAccountRepository} and {@link BatchRepository}, in the transaction that
+ * changes the balance.
+ */
+@Repository
+@PostgresStorage
+public class MovementRepository {
+    /**
+     * Partitions are created this many months in advance, so that a missed maintenance run doesn't make writes fail.
+     */
+    static final int MONTHS_AHEAD = 2;
+
+    private final JdbcSupport jdbc;
+
+    public MovementRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Movements of the account in {@code [from, to)}, in time order, after the given position (from the start when
+     * {@code afterId} is null).
+     */
+    public Either<Error, List<Movement>> movements(
+            String accountId,
+            Instant from,
+            Instant to,
+            Instant afterAt,
+            Long afterId,
+            int limit
+    ) {
+        return jdbc.withConnection("account_movement.read", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT id, account_id, at, amount, balance, counterpart FROM account_movement "
+                            + "WHERE account_id = ? AND at >= ? AND at < ? "
+                            + (afterId == null ? "" : "AND (at, id) > (?, ?) ")
+                            + "ORDER BY at, id LIMIT ?"
+            )) {
+                int index = 1;
+                preparedStatement.setString(index++, accountId);
+                preparedStatement.setTimestamp(index++, Timestamp.from(from));
+                preparedStatement.setTimestamp(index++, Timestamp.from(to));
+                if(afterId != null) {
+                    preparedStatement.setTimestamp(index++, Timestamp.from(afterAt));
+                    preparedStatement.setLong(index++, afterId);
+                }
+                preparedStatement.setInt(index, limit);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                final List<Movement> movements = new ArrayList<>();
+                while(resultSet.next()) {
+                    movements.add(new Movement(
+                            resultSet.getLong("id"),
+                            resultSet.getString("account_id"),
+                            resultSet.getTimestamp("at").toInstant(),
+                            resultSet.getBigDecimal("amount"),
+                            resultSet.getBigDecimal("balance"),
+                            resultSet.getString("counterpart")
+                    ));
+                }
+                return Either.right(movements);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    public Either<Error, Integer> createPartitions(YearMonth first) {
+        return jdbc.withConnection("account_movement.partitions", connection -> {
+            try {
+                createPartitions(connection, first, MONTHS_AHEAD);
+                return Either.right(MONTHS_AHEAD + 1);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Creates the partitions of {@code first} and of the {@code ahead} following months, with their indexes, when
+     * they don't exist.
+     */
+    static void createPartitions(Connection connection, YearMonth first, int ahead) throws SQLException {
+        try(final Statement statement = connection.createStatement()) {
+            for(int offset = 0; offset <= ahead; offset++) {
+                final YearMonth month = first.plusMonths(offset);
+                final String partition = String.format("account_movement_%d_%02d", month.getYear(), month.getMonthValue());
+                statement.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF account_movement FOR VALUES FROM ('%s') TO ('%s')",
+                        partition,
+                        month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC),
+                        month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC)
+                ));
+                statement.execute("CREATE INDEX IF NOT EXISTS " + partition + "_account ON " + partition + " (account_id, at, id)");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + partition + "_at ON " + partition + " USING brin (at)");
+            }
+        }
+    }
+
+    /**
+     * Records a balance change, must be called in the transaction that made it.
+     */
+    static void append(
+            Connection connection,
+            String accountId,
+            BigDecimal amount,
+            BigDecimal balance,
+            String counterpart
+    ) throws SQLException {
+        if(amount.signum() == 0) {
+            return;
+        }
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            INSERT INTO account_movement(account_id, amount, balance, counterpart) VALUES (?, ?, ?, ?)
+            """)) {
+            preparedStatement.setString(1, accountId);
+            preparedStatement.setBigDecimal(2, amount);
+            preparedStatement.setBigDecimal(3, balance);
+            preparedStatement.setString(4, counterpart);
+            preparedStatement.executeUpdate();
+        }
+    }
+}
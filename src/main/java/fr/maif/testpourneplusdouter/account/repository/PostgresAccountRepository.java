@@ -0,0 +1,414 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.TransferResult;
+import io.vavr.control.Either;
+
+/**
+ * Default storage: accounts in Postgres, every new state recorded in the outbox and every balance change in the
+ * movements, both in the same transaction. Reads fall back to the {@link AccountArchiveRepository archive} for
+ * accounts that aren't in the {@code account} table.
+ */
+@Repository
+@PostgresStorage
+public class PostgresAccountRepository implements AccountRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresAccountRepository.class);
+    private static final ThrottledErrorLog ERROR_LOG = new ThrottledErrorLog(LOGGER, 10, TimeUnit.SECONDS);
+
+    private final JdbcSupport jdbc;
+    private final BalanceStriping striping;
+    private final ApplicationEventPublisher publisher;
+
+    public PostgresAccountRepository(JdbcSupport jdbc, BalanceStriping striping, ApplicationEventPublisher publisher) {
+        this.jdbc = jdbc;
+        this.striping = striping;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public Either<Error, Account> save(Account account) {
+        return jdbc.withConnection("account.save", connection -> save(account, connection))
+                .peek(this::publishSaved);
+    }
+
+    public Either<Error, Account> save(Account account, Connection connection) {
+        return save(account, null, connection);
+    }
+
+    /**
+     * Upserts the account and records, in the same statement, its new state in the outbox and the balance change in
+     * the movements, {@code counterpart} being the other account of a transfer.
+     * An existing account is only updated if it is still at the version it was read at, otherwise nothing is written
+     * and {@link Error#CONCURRENT_MODIFICATION} is returned.
+     */
+    Either<Error, Account> save(Account account, String counterpart, Connection connection) {
+        try (final PreparedStatement preparedStatement = connection
+                .prepareStatement("""
+                        WITH previous AS (
+                            SELECT balance FROM account WHERE id = ?
+                        ), saved AS (
+                            INSERT INTO account(id, customer, balance, closed, version, closed_at)
+                            VALUES (?, ?, ?, ?, ?, CASE WHEN ? THEN now() END)
+                            ON CONFLICT (id) DO UPDATE
+                                SET customer = EXCLUDED.customer, balance = EXCLUDED.balance, closed = EXCLUDED.closed,
+                                    version = account.version + 1,
+                                    closed_at = CASE WHEN EXCLUDED.closed THEN COALESCE(account.closed_at, now()) END
+                                WHERE account.version = EXCLUDED.version
+                            RETURNING id, customer, balance, closed, version
+                        ), outbox AS (
+                            INSERT INTO account_outbox(account_id, customer, balance, closed, version)
+                            SELECT id, customer, balance, closed, version FROM saved
+                        ), movement AS (
+                            INSERT INTO account_movement(account_id, amount, balance, counterpart)
+                            SELECT s.id, s.balance - COALESCE(p.balance, 0::money), s.balance, ?
+                            FROM saved s LEFT JOIN previous p ON TRUE
+                            WHERE s.balance <> COALESCE(p.balance, 0::money)
+                        )
+                        SELECT id, customer, balance, closed, version FROM saved
+                    """)
+        ) {
+
+
+            preparedStatement.setString(1, account.id());
+            preparedStatement.setString(2, account.id());
+            preparedStatement.setString(3, account.customer());
+            preparedStatement.setBigDecimal(4, account.balance());
+            preparedStatement.setBoolean(5, account.closed());
+            preparedStatement.setLong(6, account.version());
+            preparedStatement.setBoolean(7, account.closed());
+            preparedStatement.setString(8, counterpart);
+
+            final ResultSet result = preparedStatement.executeQuery();
+
+            if(!result.isBeforeFirst()) {
+                return Either.left(Error.CONCURRENT_MODIFICATION);
+            }
+
+            return mapDBResult(result);
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    @Override
+    public Either<Error, Account> read(String accountId) {
+        return jdbc.withConnection("account.read", connection -> read(accountId, connection));
+    }
+
+    public Either<Error, Account> read(String accountId, Connection connection) {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement(striping.isStriped(accountId) ? """
+            SELECT a.id, a.customer, a.closed,
+                a.balance + COALESCE((SELECT sum(s.balance) FROM account_stripe s WHERE s.account_id = a.id), 0::money) AS balance,
+                a.version + COALESCE((SELECT sum(s.version) FROM account_stripe s WHERE s.account_id = a.id), 0)::bigint AS version
+            FROM account a WHERE a.id = ?
+            """ : """
+            SELECT * FROM account WHERE account.id = ?
+            """)) {
+            preparedStatement.setString(1, accountId);
+
+            final ResultSet resultSet = preparedStatement.executeQuery();
+
+            if(!resultSet.isBeforeFirst()) {
+                return AccountArchiveRepository.read(connection, accountId)
+                        .<Either<Error, Account>>map(Either::right)
+                        .orElseGet(() -> Either.left(Error.ACCOUNT_NOT_FOUND));
+            }
+
+            return mapDBResult(resultSet);
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    /**
+     * Reads several accounts with a single query, ids that don't match any account are absent from the result.
+     */
+    @Override
+    public Either<Error, Map<String, Account>> readAll(Collection<String> accountIds) {
+        if(accountIds.isEmpty()) {
+            return Either.right(Map.of());
+        }
+        final boolean anyStriped = accountIds.stream().anyMatch(striping::isStriped);
+        return jdbc.withConnection("account.readAll", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(anyStriped ? """
+                SELECT a.id, a.customer, a.closed,
+                    a.balance + COALESCE((SELECT sum(s.balance) FROM account_stripe s WHERE s.account_id = a.id), 0::money) AS balance,
+                    a.version + COALESCE((SELECT sum(s.version) FROM account_stripe s WHERE s.account_id = a.id), 0)::bigint AS version
+                FROM account a WHERE a.id = ANY(?)
+                """ : """
+                SELECT * FROM account WHERE account.id = ANY(?)
+                """)) {
+                preparedStatement.setArray(1, connection.createArrayOf("varchar", accountIds.toArray()));
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                final Map<String, Account> accounts = new HashMap<>();
+                while(resultSet.next()) {
+                    final Account account = new Account(
+                            resultSet.getString("id"),
+                            resultSet.getString("customer"),
+                            resultSet.getBigDecimal("balance"),
+                            resultSet.getBoolean("closed"),
+                            resultSet.getLong("version")
+                    );
+                    accounts.put(account.id(), account);
+                }
+                if(accounts.size() < accountIds.size()) {
+                    AccountArchiveRepository.readAll(
+                            connection,
+                            accountIds.stream().filter(id -> !accounts.containsKey(id)).collect(Collectors.toList()),
+                            accounts
+                    );
+                }
+                return Either.right(accounts);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    @Override
+    public boolean isStriped(String accountId) {
+        return striping.isStriped(accountId);
+    }
+
+    /**
+     * Adds the amount to a random stripe of a striped account. The {@code account} row is only locked {@code FOR SHARE}:
+     * deposits don't wait for each other, but can't commit while {@link #update} holds the row, so an account can't
+     * be closed with a deposit in flight. The version of a striped account is the sum of the versions of its row and
+     * of its stripes, so that it still changes on every deposit.
+     */
+    @Override
+    public Either<Error, Account> depositOnStripe(String accountId, BigDecimal amount) {
+        return jdbc.withConnection("account.depositOnStripe", connection -> jdbc.inTransaction(
+                connection,
+                () -> depositOnStripe(accountId, amount, null, connection)
+        )).peek(this::publishSaved);
+    }
+
+    Either<Error, Account> depositOnStripe(String accountId, BigDecimal amount, String counterpart, Connection connection) {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            INSERT INTO account_stripe(account_id, stripe, balance, version)
+            SELECT id, ?, ?, 1 FROM account WHERE id = ? AND NOT closed FOR SHARE
+            ON CONFLICT (account_id, stripe) DO UPDATE
+                SET balance = account_stripe.balance + EXCLUDED.balance, version = account_stripe.version + 1
+            """)) {
+            preparedStatement.setInt(1, striping.randomStripe());
+            preparedStatement.setBigDecimal(2, amount);
+            preparedStatement.setString(3, accountId);
+
+            final int inserted = preparedStatement.executeUpdate();
+            final Either<Error, Account> account = read(accountId, connection);
+            if(inserted == 0) {
+                return account.flatMap(closedAccount -> Either.left(Error.ACCOUNT_CLOSED));
+            }
+            return account
+                    .flatMap(updated -> appendMovement(updated, amount, counterpart, connection))
+                    .flatMap(updated -> appendToOutbox(updated, connection));
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    /**
+     * Locks a striped account, applies the modification on its aggregated balance and stores the balance difference
+     * on the {@code account} row, leaving concurrent stripe deposits untouched. Nothing is written when the
+     * modification returns the account it was given.
+     */
+    @Override
+    public Either<Error, Account> update(String accountId, Function<Account, Either<Error, Account>> modification) {
+        return jdbc.withConnection("account.update", connection -> jdbc.inTransaction(connection, () -> {
+            try(final PreparedStatement lock = connection.prepareStatement("""
+                SELECT id FROM account WHERE id = ? FOR UPDATE
+                """)) {
+                lock.setString(1, accountId);
+                lock.executeQuery();
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+
+            return read(accountId, connection).flatMap(current -> {
+                final Either<Error, Account> modified = modification.apply(current);
+                if(modified.isLeft() || modified.get() == current) {
+                    return modified;
+                }
+                return saveStriped(current, modified.get(), null, connection);
+            });
+        })).peek(this::publishSaved);
+    }
+
+    /**
+     * Stores the balance difference on the {@code account} row of a striped account, locked by the caller, and
+     * records the movement and the new state.
+     */
+    Either<Error, Account> saveStriped(Account current, Account updated, String counterpart, Connection connection) {
+        return saveDelta(current, updated, connection)
+                .flatMap(saved -> appendMovement(saved, saved.balance().subtract(current.balance()), counterpart, connection))
+                .flatMap(saved -> appendToOutbox(saved, connection));
+    }
+
+    Either<Error, Account> saveDelta(Account current, Account updated, Connection connection) {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            UPDATE account SET customer = ?, balance = balance + ?::money, closed = ?, version = version + 1,
+                closed_at = CASE WHEN ? THEN COALESCE(closed_at, now()) END
+            WHERE id = ?
+            """)) {
+            preparedStatement.setString(1, updated.customer());
+            preparedStatement.setBigDecimal(2, updated.balance().subtract(current.balance()));
+            preparedStatement.setBoolean(3, updated.closed());
+            preparedStatement.setBoolean(4, updated.closed());
+            preparedStatement.setString(5, current.id());
+            preparedStatement.executeUpdate();
+
+            return read(current.id(), connection);
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    /**
+     * Records the new state of the account in the outbox, must be called in the transaction that modified it.
+     */
+    Either<Error, Account> appendToOutbox(Account account, Connection connection) {
+        try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+            INSERT INTO account_outbox(account_id, customer, balance, closed, version) VALUES (?, ?, ?, ?, ?)
+            """)) {
+            preparedStatement.setString(1, account.id());
+            preparedStatement.setString(2, account.customer());
+            preparedStatement.setBigDecimal(3, account.balance());
+            preparedStatement.setBoolean(4, account.closed());
+            preparedStatement.setLong(5, account.version());
+            preparedStatement.executeUpdate();
+
+            return Either.right(account);
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    Either<Error, Account> appendMovement(Account account, BigDecimal amount, String counterpart, Connection connection) {
+        try {
+            MovementRepository.append(connection, account.id(), amount, account.balance(), counterpart);
+            return Either.right(account);
+        } catch (SQLException exception) {
+            return jdbc.dbError(exception);
+        }
+    }
+
+    void publishSaved(Account account) {
+        publisher.publishEvent(new AccountSavedEvent(account));
+    }
+
+    /**
+     * Locks both rows in id order, so that two opposite transfers can't deadlock, and saves both accounts in the
+     * same transaction. A striped source is debited like in {@link #update}; a striped target is credited on a stripe
+     * and its row only locked {@code FOR SHARE}, so that transfers to a hot account don't wait for each other.
+     */
+    @Override
+    public Either<Error, TransferResult> transfer(
+            String from,
+            String to,
+            BiFunction<Account, Account, Either<Error, TransferResult>> transfer
+    ) {
+        return jdbc.withConnection("account.transfer", connection -> jdbc.inTransaction(connection, () -> {
+            for(String id : new TreeSet<>(List.of(from, to))) {
+                final boolean creditedOnStripe = id.equals(to) && !id.equals(from) && striping.isStriped(id);
+                try(final PreparedStatement lock = connection.prepareStatement(creditedOnStripe ? """
+                    SELECT id FROM account WHERE id = ? FOR SHARE
+                    """ : """
+                    SELECT id FROM account WHERE id = ? FOR UPDATE
+                    """)) {
+                    lock.setString(1, id);
+                    lock.executeQuery();
+                } catch (SQLException exception) {
+                    return jdbc.dbError(exception);
+                }
+            }
+
+            return read(from, connection).flatMap(source -> read(to, connection)
+                    .flatMap(target -> transfer.apply(source, target)
+                            .flatMap(result -> debit(source, result.source(), to, connection)
+                                    .flatMap(savedSource -> credit(target, result.target(), from, connection)
+                                            .map(savedTarget -> new TransferResult(savedSource, savedTarget))
+                                    )
+                            )
+                    )
+            );
+        })).peek(result -> {
+            publishSaved(result.source());
+            publishSaved(result.target());
+        });
+    }
+
+    Either<Error, Account> debit(Account current, Account updated, String counterpart, Connection connection) {
+        if(striping.isStriped(current.id())) {
+            return saveStriped(current, updated, counterpart, connection);
+        }
+        return save(updated, counterpart, connection);
+    }
+
+    Either<Error, Account> credit(Account current, Account updated, String counterpart, Connection connection) {
+        if(striping.isStriped(current.id())) {
+            return depositOnStripe(current.id(), updated.balance().subtract(current.balance()), counterpart, connection);
+        }
+        return save(updated, counterpart, connection);
+    }
+
+    @Override
+    public Either<Error, Optional<Account>> searchAccountForCustomer(String customerId) {
+        return jdbc.withConnection("account.searchAccountForCustomer", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT * FROM account WHERE account.customer = ?
+                """)) {
+                preparedStatement.setString(1, customerId);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+
+                if(!resultSet.isBeforeFirst()) {
+                    return Either.right(AccountArchiveRepository.findByCustomer(connection, customerId));
+                }
+
+                return mapDBResult(resultSet).map(Optional::ofNullable);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    static Either<Error, Account> mapDBResult(ResultSet resultSet) {
+        try {
+            resultSet.next();
+            final String id = resultSet.getString("id");
+            final String customer = resultSet.getString("customer");
+            final BigDecimal balance = resultSet.getBigDecimal("balance");
+            final boolean closed = resultSet.getBoolean("closed");
+            final long version = resultSet.getLong("version");
+
+            return Either.right(new Account(id, customer, balance, closed, version));
+        } catch (SQLException exception) {
+            ERROR_LOG.error("SQL error while accessing DB", exception);
+            return Either.left(Error.DB_ERROR);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+/**
+ * Beans that need the Postgres database: only created when {@code account.storage} is {@code postgres} or unset.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@ConditionalOnProperty(name = "account.storage", havingValue = "postgres", matchIfMissing = true)
+public @interface PostgresStorage {
+}
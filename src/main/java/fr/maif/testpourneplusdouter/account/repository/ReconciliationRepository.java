@@ -0,0 +1,232 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.KeyRange;
+import fr.maif.testpourneplusdouter.account.model.RangeChecksum;
+import io.vavr.control.Either;
+
+/**
+ * Checksums of the account tables, computed by key range, and the {@code account_checksum} snapshots they are
+ * stored in.
+ * <p>
+ * Scans stream rows through server-side cursors (a fetch size inside a transaction) so that memory use doesn't
+ * depend on the range size. Concurrent range scans can share one exported snapshot, which makes their checksums
+ * add up to a consistent picture of the whole table.
+ */
+@Repository
+@PostgresStorage
+public class ReconciliationRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconciliationRepository.class);
+    private static final ThrottledErrorLog ERROR_LOG = new ThrottledErrorLog(LOGGER, 10, TimeUnit.SECONDS);
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+
+    private final JdbcSupport jdbc;
+
+    public ReconciliationRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public DataSource primary() {
+        return jdbc.dataSource();
+    }
+
+    /**
+     * Opens a repeatable read transaction on the given database and exports its snapshot. Scans passed the snapshot
+     * id see exactly the same data, as long as the returned connection is kept open.
+     */
+    public Either<Error, ExportedSnapshot> exportSnapshot(DataSource dataSource) {
+        try {
+            final Connection connection = dataSource.getConnection();
+            try(final Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                final ResultSet resultSet = statement.executeQuery("SELECT pg_export_snapshot()");
+                resultSet.next();
+                return Either.right(new ExportedSnapshot(connection, resultSet.getString(1)));
+            } catch (SQLException exception) {
+                connection.close();
+                throw exception;
+            }
+        } catch (SQLException exception) {
+            ERROR_LOG.error("Failed to export a snapshot for reconciliation", exception);
+            return Either.left(Error.DB_ERROR);
+        }
+    }
+
+    public record ExportedSnapshot(Connection connection, String id) implements AutoCloseable {
+        @Override
+        public void close() {
+            try {
+                connection.rollback();
+                connection.close();
+            } catch (SQLException exception) {
+                ERROR_LOG.error("Failed to release the exported snapshot", exception);
+            }
+        }
+    }
+
+    /**
+     * Digests the accounts of the range in id order, then their stripes. {@code throttle} is called every
+     * {@code fetchSize} rows and may block to limit the I/O imposed on the database.
+     *
+     * @param snapshotId snapshot exported by {@link #exportSnapshot}, or null to scan in a snapshot of its own
+     */
+    public Either<Error, RangeChecksum> checksum(
+            DataSource dataSource,
+            String snapshotId,
+            KeyRange range,
+            int fetchSize,
+            Runnable throttle
+    ) {
+        if(snapshotId != null && !SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot id " + snapshotId);
+        }
+        try(final Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try(final Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                if(snapshotId != null) {
+                    statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                }
+            }
+
+            final MessageDigest digest = RangeChecksum.sha256();
+            final ByteBuffer numbers = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + 1);
+            long accounts = 0;
+            long cents = 0;
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT a.id, a.balance, a.closed FROM account a WHERE TRUE""" + KeyRangeSql.condition("a.id", range, null) + """
+
+                ORDER BY a.id
+                """)) {
+                preparedStatement.setFetchSize(fetchSize);
+                KeyRangeSql.bind(preparedStatement, 1, range, null);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                while(resultSet.next()) {
+                    final long balance = toCents(resultSet.getBigDecimal("balance"));
+                    digest.update(RangeChecksum.utf8(resultSet.getString("id")));
+                    numbers.clear();
+                    numbers.putLong(balance).put((byte) (resultSet.getBoolean("closed") ? 1 : 0));
+                    digest.update(numbers.array(), 0, numbers.position());
+                    accounts++;
+                    cents += balance;
+                    if(accounts % fetchSize == 0) {
+                        throttle.run();
+                    }
+                }
+            }
+
+            long stripes = 0;
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT s.account_id, s.stripe, s.balance FROM account_stripe s WHERE TRUE""" + KeyRangeSql.condition("s.account_id", range, null) + """
+
+                ORDER BY s.account_id, s.stripe
+                """)) {
+                preparedStatement.setFetchSize(fetchSize);
+                KeyRangeSql.bind(preparedStatement, 1, range, null);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                while(resultSet.next()) {
+                    final long balance = toCents(resultSet.getBigDecimal("balance"));
+                    digest.update(RangeChecksum.utf8(resultSet.getString("account_id")));
+                    numbers.clear();
+                    numbers.putLong(balance).putInt(resultSet.getInt("stripe"));
+                    digest.update(numbers.array(), 0, numbers.position());
+                    cents += balance;
+                    if(++stripes % fetchSize == 0) {
+                        throttle.run();
+                    }
+                }
+            }
+            connection.commit();
+
+            return Either.right(new RangeChecksum(
+                    range.index(),
+                    accounts,
+                    BigDecimal.valueOf(cents, 2),
+                    RangeChecksum.toHex(digest.digest())
+            ));
+        } catch (SQLException exception) {
+            ERROR_LOG.error("Failed to compute the checksum of range " + range.index(), exception);
+            return Either.left(Error.DB_ERROR);
+        }
+    }
+
+    public Either<Error, Integer> save(String snapshot, List<RangeChecksum> checksums) {
+        return jdbc.withConnection("account_checksum.save", connection -> jdbc.inTransaction(connection, () -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                INSERT INTO account_checksum(snapshot, partition, accounts, total, digest) VALUES (?, ?, ?, ?, ?)
+                ON CONFLICT (snapshot, partition) DO UPDATE SET
+                    accounts = EXCLUDED.accounts, total = EXCLUDED.total, digest = EXCLUDED.digest, taken_at = now()
+                """)) {
+                for(RangeChecksum checksum : checksums) {
+                    preparedStatement.setString(1, snapshot);
+                    preparedStatement.setInt(2, checksum.partition());
+                    preparedStatement.setLong(3, checksum.accounts());
+                    preparedStatement.setBigDecimal(4, checksum.total());
+                    preparedStatement.setString(5, checksum.digest());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+
+                return Either.right(checksums.size());
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        }));
+    }
+
+    /**
+     * Checksums of the snapshot in partition order.
+     */
+    public Either<Error, List<RangeChecksum>> load(String snapshot) {
+        return jdbc.withConnection("account_checksum.load", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                SELECT partition, accounts, total, digest FROM account_checksum WHERE snapshot = ? ORDER BY partition
+                """)) {
+                preparedStatement.setString(1, snapshot);
+
+                final ResultSet resultSet = preparedStatement.executeQuery();
+                final List<RangeChecksum> checksums = new ArrayList<>();
+                while(resultSet.next()) {
+                    checksums.add(new RangeChecksum(
+                            resultSet.getInt("partition"),
+                            resultSet.getLong("accounts"),
+                            resultSet.getBigDecimal("total"),
+                            resultSet.getString("digest")
+                    ));
+                }
+                if(checksums.isEmpty()) {
+                    return Either.left(Error.SNAPSHOT_NOT_FOUND);
+                }
+                return Either.right(checksums);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    private static long toCents(BigDecimal balance) {
+        return balance == null ? 0 : AccountTable.toCents(balance);
+    }
+}
@@ -0,0 +1,214 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ScheduledTransfer;
+import io.vavr.control.Either;
+
+/**
+ * Scheduled transfers and standing orders. An occurrence is claimed before being executed, with a compare-and-set
+ * on its due date: each occurrence is executed at most once, even when several instances load it or when a crash
+ * happens in between. A one-shot transfer whose instance crashed while executing it is left
+ * {@link ScheduledTransfer.Status#EXECUTING} until {@link #failInterrupted} reports it.
+ */
+@Repository
+@PostgresStorage
+public class ScheduledTransferRepository {
+    private static final String COLUMNS =
+            "id, source, target, amount, start_at, recurrence, execute_at, status, executions, last_error";
+
+    private final JdbcSupport jdbc;
+
+    public ScheduledTransferRepository(JdbcSupport jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public Either<Error, ScheduledTransfer> create(ScheduledTransfer transfer) {
+        return jdbc.withConnection("account_scheduled_transfer.create", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "INSERT INTO account_scheduled_transfer(" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+            )) {
+                preparedStatement.setString(1, transfer.id());
+                preparedStatement.setString(2, transfer.source());
+                preparedStatement.setString(3, transfer.target());
+                preparedStatement.setBigDecimal(4, transfer.amount());
+                preparedStatement.setTimestamp(5, Timestamp.from(transfer.startAt()));
+                preparedStatement.setString(6, transfer.isRecurring() ? transfer.recurrence().toString() : null);
+                preparedStatement.setTimestamp(7, Timestamp.from(transfer.executeAt()));
+                preparedStatement.setString(8, transfer.status().name());
+                preparedStatement.setInt(9, transfer.executions());
+                preparedStatement.setString(10, transfer.lastError());
+                preparedStatement.executeUpdate();
+
+                return Either.right(transfer);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    public Either<Error, List<ScheduledTransfer>> forAccount(String accountId) {
+        return jdbc.withConnection("account_scheduled_transfer.for_account", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT " + COLUMNS + " FROM account_scheduled_transfer WHERE source = ? ORDER BY execute_at, id"
+            )) {
+                preparedStatement.setString(1, accountId);
+
+                return Either.right(readAll(preparedStatement.executeQuery()));
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Cancels a transfer of the account that is still scheduled.
+     */
+    public Either<Error, ScheduledTransfer> cancel(String accountId, String transferId) {
+        return jdbc.withConnection("account_scheduled_transfer.cancel", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "UPDATE account_scheduled_transfer SET status = 'CANCELLED' "
+                            + "WHERE id = ? AND source = ? AND status = 'SCHEDULED' RETURNING " + COLUMNS
+            )) {
+                preparedStatement.setString(1, transferId);
+                preparedStatement.setString(2, accountId);
+
+                final List<ScheduledTransfer> cancelled = readAll(preparedStatement.executeQuery());
+                return cancelled.isEmpty()
+                        ? Either.left(Error.SCHEDULED_TRANSFER_NOT_FOUND)
+                        : Either.right(cancelled.get(0));
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Next page of scheduled occurrences due before {@code until}, in {@code (execute_at, id)} order after the given
+     * position (from the first one when {@code afterId} is null).
+     */
+    public Either<Error, List<ScheduledTransfer>> due(Instant until, Instant afterExecuteAt, String afterId, int limit) {
+        return jdbc.withConnection("account_scheduled_transfer.due", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "SELECT " + COLUMNS + " FROM account_scheduled_transfer "
+                            + "WHERE status = 'SCHEDULED' AND execute_at < ? "
+                            + (afterId == null ? "" : "AND (execute_at, id) > (?, ?) ")
+                            + "ORDER BY execute_at, id LIMIT ?"
+            )) {
+                int index = 1;
+                preparedStatement.setTimestamp(index++, Timestamp.from(until));
+                if(afterId != null) {
+                    preparedStatement.setTimestamp(index++, Timestamp.from(afterExecuteAt));
+                    preparedStatement.setString(index++, afterId);
+                }
+                preparedStatement.setInt(index, limit);
+
+                return Either.right(readAll(preparedStatement.executeQuery()));
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Takes the occurrence due at {@code transfer.executeAt()}: a one-shot transfer becomes
+     * {@link ScheduledTransfer.Status#EXECUTING}, a standing order moves to its next occurrence. Returns false when the
+     * occurrence was cancelled or already claimed.
+     */
+    public Either<Error, Boolean> claim(ScheduledTransfer transfer) {
+        return jdbc.withConnection("account_scheduled_transfer.claim", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                UPDATE account_scheduled_transfer
+                SET status = ?, execute_at = ?, executions = executions + 1, claimed_at = now()
+                WHERE id = ? AND status = 'SCHEDULED' AND execute_at = ?
+                """)) {
+                preparedStatement.setString(1, transfer.isRecurring()
+                        ? ScheduledTransfer.Status.SCHEDULED.name()
+                        : ScheduledTransfer.Status.EXECUTING.name());
+                preparedStatement.setTimestamp(2, Timestamp.from(
+                        transfer.isRecurring() ? transfer.nextExecution() : transfer.executeAt()
+                ));
+                preparedStatement.setString(3, transfer.id());
+                preparedStatement.setTimestamp(4, Timestamp.from(transfer.executeAt()));
+
+                return Either.right(preparedStatement.executeUpdate() == 1);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Records the outcome of a claimed occurrence, {@code error} being null on success.
+     */
+    public Either<Error, Boolean> complete(ScheduledTransfer transfer, Error error) {
+        return jdbc.withConnection("account_scheduled_transfer.complete", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement("""
+                UPDATE account_scheduled_transfer SET status = COALESCE(?, status), last_error = ? WHERE id = ?
+                """)) {
+                final ScheduledTransfer.Status status = transfer.isRecurring()
+                        ? null
+                        : error == null ? ScheduledTransfer.Status.DONE : ScheduledTransfer.Status.FAILED;
+                preparedStatement.setString(1, status == null ? null : status.name());
+                preparedStatement.setString(2, error == null ? null : error.name());
+                preparedStatement.setString(3, transfer.id());
+
+                return Either.right(preparedStatement.executeUpdate() == 1);
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    /**
+     * Marks {@link ScheduledTransfer.Status#FAILED} the one-shot transfers claimed before {@code claimedBefore} and
+     * still executing, their instance having stopped before recording the outcome. Whether the transfer itself was
+     * committed is unknown, so they are not executed again: {@link Error#SCHEDULED_TRANSFER_INTERRUPTED} tells to
+     * check the movements of the account.
+     */
+    public Either<Error, List<ScheduledTransfer>> failInterrupted(Instant claimedBefore) {
+        return jdbc.withConnection("account_scheduled_transfer.fail_interrupted", connection -> {
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(
+                    "UPDATE account_scheduled_transfer SET status = 'FAILED', last_error = ? "
+                            + "WHERE status = 'EXECUTING' AND (claimed_at IS NULL OR claimed_at < ?) RETURNING " + COLUMNS
+            )) {
+                preparedStatement.setString(1, Error.SCHEDULED_TRANSFER_INTERRUPTED.name());
+                preparedStatement.setTimestamp(2, Timestamp.from(claimedBefore));
+
+                return Either.right(readAll(preparedStatement.executeQuery()));
+            } catch (SQLException exception) {
+                return jdbc.dbError(exception);
+            }
+        });
+    }
+
+    private static List<ScheduledTransfer> readAll(ResultSet resultSet) throws SQLException {
+        final List<ScheduledTransfer> transfers = new ArrayList<>();
+        while(resultSet.next()) {
+            final String recurrence = resultSet.getString("recurrence");
+            transfers.add(new ScheduledTransfer(
+                    resultSet.getString("id"),
+                    resultSet.getString("source"),
+                    resultSet.getString("target"),
+                    resultSet.getBigDecimal("amount"),
+                    resultSet.getTimestamp("start_at").toInstant(),
+                    recurrence == null ? null : Period.parse(recurrence),
+                    resultSet.getTimestamp("execute_at").toInstant(),
+                    ScheduledTransfer.Status.valueOf(resultSet.getString("status")),
+                    resultSet.getInt("executions"),
+                    resultSet.getString("last_error")
+            ));
+        }
+        return transfers;
+    }
+}
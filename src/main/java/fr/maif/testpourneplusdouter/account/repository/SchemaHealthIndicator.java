@@ -0,0 +1,31 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Part of the readiness group: the instance only accepts traffic once the database has been reached.
+ */
+@Component
+@PostgresStorage
+public class SchemaHealthIndicator implements HealthIndicator {
+    private final SchemaInitializer schemaInitializer;
+    private final DatabaseAvailability availability;
+
+    public SchemaHealthIndicator(SchemaInitializer schemaInitializer, DatabaseAvailability availability) {
+        this.schemaInitializer = schemaInitializer;
+        this.availability = availability;
+    }
+
+    @Override
+    public Health health() {
+        if(!schemaInitializer.isReady()) {
+            return Health.outOfService().withDetail("reason", "schema not initialized yet").build();
+        }
+        if(availability.isDown()) {
+            return Health.outOfService().withDetail("reason", "database unreachable").build();
+        }
+        return Health.up().build();
+    }
+}
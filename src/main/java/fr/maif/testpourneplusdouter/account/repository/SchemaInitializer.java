@@ -0,0 +1,180 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the account schema once, outside of context startup: a background thread retries until the database is
+ * reachable, and the first repository access runs it if the background thread didn't yet.
+ * Startup therefore doesn't depend on the database, and readiness is reported by {@link SchemaHealthIndicator}.
+ */
+@Component
+@PostgresStorage
+@Lazy(false)
+public class SchemaInitializer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SchemaInitializer.class);
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS account (
+                id varchar(100) PRIMARY KEY,
+                customer varchar(100),
+                balance money,
+                closed boolean
+            );
+            ALTER TABLE account ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+            ALTER TABLE account ADD COLUMN IF NOT EXISTS closed_at timestamptz;
+            CREATE INDEX IF NOT EXISTS account_closed_at ON account (closed_at) WHERE closed;
+            UPDATE account SET closed_at = now() WHERE closed AND closed_at IS NULL;
+            CREATE TABLE IF NOT EXISTS account_archive (
+                id varchar(100) PRIMARY KEY,
+                customer varchar(100),
+                balance money NOT NULL,
+                version bigint NOT NULL,
+                closed_at timestamptz,
+                archived_at timestamptz NOT NULL DEFAULT now()
+            );
+            CREATE INDEX IF NOT EXISTS account_archive_customer ON account_archive (customer);
+            CREATE TABLE IF NOT EXISTS account_stripe (
+                account_id varchar(100) NOT NULL,
+                stripe int NOT NULL,
+                balance money NOT NULL,
+                PRIMARY KEY (account_id, stripe)
+            );
+            ALTER TABLE account_stripe ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+            CREATE TABLE IF NOT EXISTS account_outbox (
+                id bigserial PRIMARY KEY,
+                tx bigint NOT NULL DEFAULT txid_current(),
+                account_id varchar(100) NOT NULL,
+                customer varchar(100),
+                balance money,
+                closed boolean,
+                created_at timestamptz NOT NULL DEFAULT now()
+            );
+            ALTER TABLE account_outbox ADD COLUMN IF NOT EXISTS version bigint;
+            CREATE TABLE IF NOT EXISTS account_batch_run (
+                run_id varchar(100) PRIMARY KEY,
+                kind varchar(20) NOT NULL,
+                amount numeric NOT NULL,
+                started_at timestamptz NOT NULL DEFAULT now(),
+                finished_at timestamptz
+            );
+            CREATE TABLE IF NOT EXISTS account_batch_checkpoint (
+                run_id varchar(100) NOT NULL,
+                partition int NOT NULL,
+                last_id varchar(100),
+                processed bigint NOT NULL DEFAULT 0,
+                done boolean NOT NULL DEFAULT false,
+                PRIMARY KEY (run_id, partition)
+            );
+            CREATE TABLE IF NOT EXISTS account_checksum (
+                snapshot varchar(100) NOT NULL,
+                partition int NOT NULL,
+                accounts bigint NOT NULL,
+                total numeric NOT NULL,
+                digest varchar(64) NOT NULL,
+                taken_at timestamptz NOT NULL DEFAULT now(),
+                PRIMARY KEY (snapshot, partition)
+            );
+            CREATE TABLE IF NOT EXISTS account_scheduled_transfer (
+                id varchar(100) PRIMARY KEY,
+                source varchar(100) NOT NULL,
+                target varchar(100) NOT NULL,
+                amount numeric NOT NULL,
+                start_at timestamptz NOT NULL,
+                recurrence varchar(20),
+                execute_at timestamptz NOT NULL,
+                status varchar(20) NOT NULL,
+                executions int NOT NULL DEFAULT 0,
+                last_error varchar(100)
+            );
+            CREATE INDEX IF NOT EXISTS account_scheduled_transfer_due
+                ON account_scheduled_transfer (execute_at, id) WHERE status = 'SCHEDULED';
+            CREATE INDEX IF NOT EXISTS account_scheduled_transfer_source ON account_scheduled_transfer (source);
+            ALTER TABLE account_scheduled_transfer ADD COLUMN IF NOT EXISTS claimed_at timestamptz;
+            CREATE INDEX IF NOT EXISTS account_scheduled_transfer_executing
+                ON account_scheduled_transfer (claimed_at) WHERE status = 'EXECUTING';
+            CREATE TABLE IF NOT EXISTS account_movement (
+                id bigserial NOT NULL,
+                account_id varchar(100) NOT NULL,
+                at timestamptz NOT NULL DEFAULT now(),
+                amount money NOT NULL,
+                balance money NOT NULL,
+                counterpart varchar(100)
+            ) PARTITION BY RANGE (at);
+            CREATE TABLE IF NOT EXISTS account_audit (
+                id bigserial PRIMARY KEY,
+                at timestamptz NOT NULL,
+                operation varchar(20) NOT NULL,
+                account_id varchar(100),
+                target_account_id varchar(100),
+                amount numeric,
+                caller varchar(200),
+                error varchar(100)
+            );
+            """;
+
+    private final DataSource dataSource;
+    private final long retryDelayMs;
+    private volatile boolean ready;
+
+    public SchemaInitializer(DataSource dataSource, @Value("${account.db.retry-delay-ms:1000}") long retryDelayMs) {
+        this.dataSource = dataSource;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void ensureInitialized(Connection connection) throws SQLException {
+        if(ready) {
+            return;
+        }
+        synchronized(this) {
+            if(ready) {
+                return;
+            }
+            try(final PreparedStatement preparedStatement = connection.prepareStatement(SCHEMA)) {
+                preparedStatement.execute();
+            }
+            MovementRepository.createPartitions(connection, YearMonth.now(ZoneOffset.UTC), MovementRepository.MONTHS_AHEAD);
+            ready = true;
+            LOGGER.info("Account schema is ready");
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeInBackground() {
+        final Thread thread = new Thread(this::initializeUntilReady, "schema-initializer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void initializeUntilReady() {
+        while(!ready) {
+            try(final Connection connection = dataSource.getConnection()) {
+                ensureInitialized(connection);
+            } catch (SQLException exception) {
+                LOGGER.warn("Database not reachable yet, retrying in {} ms: {}", retryDelayMs, exception.getMessage());
+                try {
+                    Thread.sleep(retryDelayMs);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
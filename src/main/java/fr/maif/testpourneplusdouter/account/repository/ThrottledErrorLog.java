@@ -0,0 +1,36 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+
+/**
+ * Logs at most one stack trace per interval, and counts the errors suppressed in between.
+ */
+class ThrottledErrorLog {
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextLog = new AtomicLong(System.nanoTime());
+    private final AtomicLong suppressed = new AtomicLong();
+
+    ThrottledErrorLog(Logger logger, long interval, TimeUnit unit) {
+        this.logger = logger;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    void error(String message, Throwable throwable) {
+        final long now = System.nanoTime();
+        final long next = nextLog.get();
+        if(now - next >= 0 && nextLog.compareAndSet(next, now + intervalNanos)) {
+            final long suppressedCount = suppressed.getAndSet(0);
+            if(suppressedCount > 0) {
+                logger.error("{} ({} similar errors suppressed)", message, suppressedCount, throwable);
+            } else {
+                logger.error(message, throwable);
+            }
+        } else {
+            suppressed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.repository.AccountArchiveRepository;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vavr.control.Either;
+
+/**
+ * Periodically moves accounts closed for more than {@code account.archive.closed-for} to the archive, in batches of
+ * {@code account.archive.batch-size}, each batch in its own short transaction. A run stops after
+ * {@code account.archive.max-batches} batches, the next one picks up where it stopped.
+ */
+@Component
+@PostgresStorage
+public class AccountArchiver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountArchiver.class);
+
+    private final AccountArchiveRepository repository;
+    private final boolean enabled;
+    private final Duration closedFor;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Counter archived;
+
+    public AccountArchiver(
+            AccountArchiveRepository repository,
+            @Value("${account.archive.enabled:true}") boolean enabled,
+            @Value("${account.archive.closed-for:P365D}") Duration closedFor,
+            @Value("${account.archive.batch-size:500}") int batchSize,
+            @Value("${account.archive.max-batches:100}") int maxBatches,
+            MeterRegistry registry
+    ) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.closedFor = closedFor;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.archived = registry.counter("account.archived");
+    }
+
+    /**
+     * @return the number of accounts archived by this run
+     */
+    @Scheduled(fixedDelayString = "${account.archive.interval-ms:3600000}")
+    public int archive() {
+        if(!enabled) {
+            return 0;
+        }
+        int total = 0;
+        for(int batch = 0; batch < maxBatches; batch++) {
+            final Either<Error, Integer> moved = repository.archive(closedFor, batchSize);
+            if(moved.isLeft()) {
+                LOGGER.warn("Could not archive closed accounts: {}", moved.getLeft());
+                break;
+            }
+            archived.increment(moved.get());
+            total += moved.get();
+            if(moved.get() < batchSize) {
+                break;
+            }
+        }
+        if(total > 0) {
+            LOGGER.info("Archived {} closed accounts", total);
+        }
+        return total;
+    }
+}
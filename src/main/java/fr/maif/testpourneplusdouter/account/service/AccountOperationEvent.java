@@ -0,0 +1,65 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import io.vavr.control.Either;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event emitted for each {@link AccountService} operation, so that latency spikes can be correlated with GC,
+ * lock or I/O events of the same recording.
+ */
+@Name("fr.maif.account.Operation")
+@Label("Account operation")
+@Category("Account")
+@Description("An account operation with the time spent in the database and waiting for the customer API")
+@StackTrace(false)
+class AccountOperationEvent extends Event {
+    static final String SUCCESS = "OK";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Account")
+    String accountId;
+
+    @Label("Target account")
+    String targetAccountId;
+
+    @Label("Outcome")
+    @Description("OK or the name of the returned error")
+    String outcome;
+
+    @Label("Database time")
+    @Timespan
+    long databaseTime;
+
+    @Label("Customer API time")
+    @Timespan
+    long customerApiTime;
+
+    void complete(
+            String operation,
+            String accountId,
+            String targetAccountId,
+            Either<Error, ?> result,
+            long databaseTime,
+            long customerApiTime
+    ) {
+        end();
+        if(shouldCommit()) {
+            this.operation = operation;
+            this.accountId = accountId;
+            this.targetAccountId = targetAccountId;
+            this.outcome = result.isRight() ? SUCCESS : result.getLeft().name();
+            this.databaseTime = databaseTime;
+            this.customerApiTime = customerApiTime;
+            commit();
+        }
+    }
+}
@@ -1,58 +1,116 @@
 package fr.maif.testpourneplusdouter.account.service;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import fr.maif.testpourneplusdouter.account.model.Account;
 import fr.maif.testpourneplusdouter.account.repository.AccountRepository;
+import fr.maif.testpourneplusdouter.account.repository.JdbcSupport;
 import fr.maif.testpourneplusdouter.account.error.Error;
 import fr.maif.testpourneplusdouter.account.model.TransferResult;
+import io.opentelemetry.context.Context;
 import io.vavr.control.Either;
 
 @Service
 public class AccountService {
+    static final int MAX_BATCH_READ = 200;
+    static final int DEFAULT_MAX_RETRIES = 3;
+
     private final AccountRepository repository;
     private final CustomerService customerService;
+    private final VelocityRules velocityRules;
+    private final OwnedAccountCache ownedAccounts;
+    private final int maxRetries;
 
-    public AccountService(AccountRepository repository, CustomerService customerService) {
+    @Autowired
+    public AccountService(
+            AccountRepository repository,
+            CustomerService customerService,
+            VelocityRules velocityRules,
+            OwnedAccountCache ownedAccounts,
+            @Value("${account.optimistic.max-retries:3}") int maxRetries
+    ) {
         this.repository = repository;
         this.customerService = customerService;
+        this.velocityRules = velocityRules;
+        this.ownedAccounts = ownedAccounts;
+        this.maxRetries = maxRetries;
+    }
+
+    AccountService(AccountRepository repository, CustomerService customerService) {
+        this(repository, customerService, VelocityRules.disabled(), OwnedAccountCache.disabled(), DEFAULT_MAX_RETRIES);
     }
 
     public Either<Error, Account> withdraw(String accountId, BigDecimal amount) {
-        if(amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Either.left(Error.NEGATIVE_WITHDRAW);
-        }
-        return repository.read(accountId)
-            .flatMap(account -> account.withdraw(amount))
-            .flatMap(repository::save);
+        return recorded("withdraw", accountId, null, () -> {
+            if(amount.compareTo(BigDecimal.ZERO) <= 0) {
+                return Either.left(Error.NEGATIVE_WITHDRAW);
+            }
+            return ownedAccounts.serialized(accountId, () -> modify(
+                    accountId,
+                    account -> account.withdraw(amount).flatMap(updated -> velocityRules.check(account, amount).map(__ -> updated)),
+                    account -> velocityRules.release(account, amount)
+            ));
+        });
     }
 
     public Either<Error, Account> deposit(String accountId, BigDecimal amount) {
-        if(amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return Either.left(Error.NEGATIVE_DEPOSIT);
-        }
-        return repository.read(accountId)
-                .flatMap(account -> account.deposit(amount))
-                .flatMap(repository::save);
+        return recorded("deposit", accountId, null, () -> {
+            if(amount.compareTo(BigDecimal.ZERO) <= 0) {
+                return Either.left(Error.NEGATIVE_DEPOSIT);
+            }
+            return ownedAccounts.serialized(accountId, () -> credit(accountId, amount));
+        });
     }
 
     public Either<Error, TransferResult> transfer(String from, String to, BigDecimal amount) {
+        return recorded("transfer", from, to, () -> ownedAccounts.serialized(from, to, () -> transferBetween(from, to, amount)));
+    }
+
+    Either<Error, TransferResult> transferBetween(String from, String to, BigDecimal amount) {
         if(amount.compareTo(BigDecimal.ZERO) <= 0) {
             return Either.left(Error.NEGATIVE_TRANSFER);
         }
-        return repository.read(from).flatMap(sourceAccount ->
-            repository.read(to).flatMap(targetAccount -> doTransfer(sourceAccount, targetAccount, amount))
-                    .flatMap(result ->
-                        repository.save(result.source())
-                                .flatMap(updatedSource -> repository.save(result.target())
-                                        .map(updatedTarget -> new TransferResult(updatedSource, updatedTarget))
-                                )
-                    )
+        if(from.equals(to)) {
+            return Either.left(Error.SAME_ACCOUNT_TRANSFER);
+        }
+        final AtomicReference<Account> debited = new AtomicReference<>();
+        final Either<Error, TransferResult> transferred = repository.transfer(
+                from,
+                to,
+                (sourceAccount, targetAccount) -> checkedTransfer(sourceAccount, targetAccount, amount)
+                        .peek(__ -> debited.set(sourceAccount))
         );
+        if(transferred.isLeft() && debited.get() != null) {
+            velocityRules.release(debited.get(), amount);
+        }
+        return transferred.peek(result -> {
+            ownedAccounts.put(result.source());
+            ownedAccounts.put(result.target());
+        });
+    }
+
+    /**
+     * {@link #doTransfer} followed by the velocity check of the source account, so that refused transfers, for a
+     * closed account or an insufficient balance, don't count as debits.
+     */
+    Either<Error, TransferResult> checkedTransfer(Account source, Account target, BigDecimal amount) {
+        return doTransfer(source, target, amount)
+                .flatMap(result -> velocityRules.check(source, amount).map(__ -> result));
     }
 
     static Either<Error, TransferResult> doTransfer(Account source, Account target, BigDecimal amount) {
@@ -65,8 +123,14 @@ public class AccountService {
         if(initialBalance.compareTo(BigDecimal.ZERO) < 0) {
             return CompletableFuture.completedFuture(Either.left(Error.NEGATIVE_BALANCE_AT_ACCOUNT_OPENING));
         }
+        final AccountOperationEvent event = new AccountOperationEvent();
+        event.begin();
+        final long fetchStart = System.nanoTime();
         return customerService.fetchCustomer(customerId)
-            .thenApply(eitherCustomer -> eitherCustomer.flatMap(
+            .thenApply(Context.current().wrapFunction(eitherCustomer -> {
+                final long customerApiTime = System.nanoTime() - fetchStart;
+                final long databaseStart = JdbcSupport.databaseNanos();
+                final Either<Error, Account> result = eitherCustomer.flatMap(
                     customer -> {
                         if(customer.banned()) {
                             return Either.left(Error.BANNED_CUSTOMER);
@@ -82,9 +146,20 @@ public class AccountService {
                         .flatMap(useless -> repository.save(
                                     new Account(UUID.randomUUID().toString(), customerId, initialBalance, false)
                             )
-                        );
+                        )
+                        .peek(ownedAccounts::put);
                     }
-            ));
+                );
+                event.complete(
+                        "open",
+                        result.map(Account::id).getOrNull(),
+                        null,
+                        result,
+                        JdbcSupport.databaseNanos() - databaseStart,
+                        customerApiTime
+                );
+                return result;
+            }));
     }
 
     public CompletableFuture<Either<Error, Account>> open(String customerId) {
@@ -92,18 +167,119 @@ public class AccountService {
     }
 
     public Either<Error, Account> close(String accountId) {
-        return repository.read(accountId)
-            .flatMap(account -> {
-                if(account.balance().compareTo(BigDecimal.ZERO) != 0) {
+        return recorded("close", accountId, null, () -> ownedAccounts.serialized(accountId, () -> modify(accountId, account -> {
+                if(account.closed()) {
+                    return Either.right(account);
+                } else if(account.balance().compareTo(BigDecimal.ZERO) != 0) {
                     return Either.left(Error.BALANCE_NOT_NULL);
                 } else {
-                    return repository.save(new Account(account.id(), account.customer(), account.balance(), true));
+                    return Either.right(new Account(account.id(), account.customer(), account.balance(), true, account.version()));
                 }
-            });
+            })));
     }
 
 
     public Either<Error, Account> read(String accountId) {
-        return repository.read(accountId);
+        return recorded("read", accountId, null, () -> ownedAccounts.get(accountId)
+                .<Either<Error, Account>>map(Either::right)
+                .orElseGet(() -> {
+                    final long relayedBatches = ownedAccounts.relayedBatches();
+                    return repository.read(accountId).peek(account -> ownedAccounts.putIfAbsent(account, relayedBatches));
+                }));
+    }
+
+    /**
+     * Reads the given accounts with a single query. Results follow the order of the requested ids, duplicates are
+     * read once, unknown ids are mapped to {@link Error#ACCOUNT_NOT_FOUND}.
+     */
+    public Either<Error, Map<String, Either<Error, Account>>> readAll(List<String> accountIds) {
+        final Set<String> ids = new LinkedHashSet<>(accountIds);
+        if(ids.size() > MAX_BATCH_READ) {
+            return Either.left(Error.TOO_MANY_ACCOUNTS);
+        }
+        return repository.readAll(ids).map(accounts -> {
+            final Map<String, Either<Error, Account>> results = new LinkedHashMap<>();
+            for(String id : ids) {
+                final Account account = accounts.get(id);
+                results.put(id, account == null ? Either.left(Error.ACCOUNT_NOT_FOUND) : Either.right(account));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Runs a synchronous operation inside an {@link AccountOperationEvent}; a single {@code isEnabled} check when no
+     * recording asks for the event.
+     */
+    static <T> Either<Error, T> recorded(
+            String operation,
+            String accountId,
+            String targetAccountId,
+            Supplier<Either<Error, T>> body
+    ) {
+        final AccountOperationEvent event = new AccountOperationEvent();
+        if(!event.isEnabled()) {
+            return body.get();
+        }
+        final long databaseStart = JdbcSupport.databaseNanos();
+        event.begin();
+        final Either<Error, T> result = body.get();
+        event.complete(operation, accountId, targetAccountId, result, JdbcSupport.databaseNanos() - databaseStart, 0);
+        return result;
+    }
+
+    Either<Error, Account> modify(String accountId, Function<Account, Either<Error, Account>> modification) {
+        return modify(accountId, modification, account -> { });
+    }
+
+    /**
+     * Reads the account, applies the modification and saves the result if the account didn't change in the meantime,
+     * retrying up to {@code account.optimistic.max-retries} times on {@link Error#CONCURRENT_MODIFICATION}.
+     * {@code rollback} receives the account read whenever its modification succeeded but wasn't saved, to undo side
+     * effects of the modification before it runs again. A modification returning the account it was given saves
+     * nothing.
+     */
+    Either<Error, Account> modify(
+            String accountId,
+            Function<Account, Either<Error, Account>> modification,
+            Consumer<Account> rollback
+    ) {
+        if(repository.isStriped(accountId)) {
+            final AtomicReference<Account> modifiedFrom = new AtomicReference<>();
+            final Either<Error, Account> updated = repository.update(
+                    accountId,
+                    account -> modification.apply(account).peek(__ -> modifiedFrom.set(account))
+            );
+            if(updated.isLeft() && modifiedFrom.get() != null) {
+                rollback.accept(modifiedFrom.get());
+            }
+            return updated.peek(ownedAccounts::put);
+        }
+        for(int attempt = 0; ; attempt++) {
+            final Either<Error, Account> current = repository.read(accountId);
+            if(current.isLeft()) {
+                return current;
+            }
+            final Either<Error, Account> modified = modification.apply(current.get());
+            if(modified.isLeft() || modified.get() == current.get()) {
+                return modified;
+            }
+            final Either<Error, Account> saved = repository.save(modified.get());
+            if(saved.isRight()) {
+                ownedAccounts.put(saved.get());
+                return saved;
+            }
+            rollback.accept(current.get());
+            if(saved.getLeft() != Error.CONCURRENT_MODIFICATION || attempt >= maxRetries) {
+                return saved;
+            }
+        }
+    }
+
+    Either<Error, Account> credit(String accountId, BigDecimal amount) {
+        if(repository.isStriped(accountId)) {
+            return repository.depositOnStripe(accountId, amount).peek(ownedAccounts::put);
+        }
+        return modify(accountId, account -> account.deposit(amount));
     }
 }
@@ -0,0 +1,164 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.AuditRecord;
+import fr.maif.testpourneplusdouter.account.repository.AuditSink;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Audit trail of account mutations, kept off the request path: request threads publish into a preallocated
+ * {@link AuditRingBuffer} and a single writer thread drains it to the {@link AuditSink} in batches.
+ * When the ring is full, records are dropped right away ({@code DROP}) or after waiting up to
+ * {@code account.audit.max-block-ms} for the writer to catch up ({@code BLOCK}).
+ */
+@Component
+@Lazy(false)
+public class AuditLog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLog.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public enum Policy { DROP, BLOCK }
+
+    private final AuditRingBuffer ring;
+    private final AuditSink sink;
+    private final Policy policy;
+    private final long maxBlockNanos;
+    private final int maxBatch;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AuditLog(
+            Optional<AuditSink> sink,
+            @Value("${account.audit.buffer-size:65536}") int bufferSize,
+            @Value("${account.audit.policy:DROP}") Policy policy,
+            @Value("${account.audit.max-block-ms:50}") long maxBlockMillis,
+            @Value("${account.audit.max-batch:1000}") int maxBatch,
+            MeterRegistry registry
+    ) {
+        this.ring = new AuditRingBuffer(bufferSize);
+        this.sink = sink.orElse(null);
+        this.policy = policy;
+        this.maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+        this.maxBatch = maxBatch;
+        this.dropped = registry.counter("account.audit.records", "result", "dropped");
+        this.written = registry.counter("account.audit.records", "result", "written");
+        this.failed = registry.counter("account.audit.records", "result", "failed");
+        registry.gauge("account.audit.lag", ring, AuditRingBuffer::lag);
+        this.writer = new Thread(this::writeUntilStopped, "audit-writer");
+        if(this.sink != null) {
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Records a mutation, {@code error} being null when it succeeded. Never fails: records that can't be buffered are
+     * counted as dropped.
+     */
+    public void publish(
+            String operation,
+            String accountId,
+            String targetAccountId,
+            BigDecimal amount,
+            String caller,
+            Error error
+    ) {
+        if(sink == null) {
+            return;
+        }
+        final long sequence = claim();
+        if(sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        final AuditRingBuffer.Slot slot = ring.slot(sequence);
+        slot.at = System.currentTimeMillis();
+        slot.operation = operation;
+        slot.accountId = accountId;
+        slot.targetAccountId = targetAccountId;
+        slot.amount = amount;
+        slot.caller = caller;
+        slot.error = error == null ? null : error.name();
+        ring.publish(sequence);
+    }
+
+    private long claim() {
+        long sequence = ring.tryClaim();
+        if(sequence >= 0 || policy == Policy.DROP || !running) {
+            return sequence;
+        }
+        final long deadline = System.nanoTime() + maxBlockNanos;
+        while(sequence < 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+            sequence = ring.tryClaim();
+        }
+        return sequence;
+    }
+
+    private void writeUntilStopped() {
+        final List<AuditRecord> batch = new ArrayList<>(maxBatch);
+        while(running) {
+            if(drainOnce(batch) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        // flush what was published before shutdown
+        int drained;
+        do {
+            drained = drainOnce(batch);
+        } while(drained > 0);
+    }
+
+    private int drainOnce(List<AuditRecord> batch) {
+        ring.drain(slot -> batch.add(new AuditRecord(
+                Instant.ofEpochMilli(slot.at),
+                slot.operation,
+                slot.accountId,
+                slot.targetAccountId,
+                slot.amount,
+                slot.caller,
+                slot.error
+        )), maxBatch);
+        final int size = batch.size();
+        if(size == 0) {
+            return 0;
+        }
+        try {
+            sink.write(batch);
+            written.increment(size);
+        } catch (Exception exception) {
+            failed.increment(size);
+            LOGGER.error("Could not write {} audit records", size, exception);
+        }
+        batch.clear();
+        return size;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if(sink != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
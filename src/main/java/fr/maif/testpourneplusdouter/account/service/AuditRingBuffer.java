@@ -0,0 +1,104 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated audit slots.
+ * Producers claim a sequence with a CAS, fill the slot in place and publish it; the consumer reads published slots in
+ * sequence order and only then releases them to producers. A slot is never reused before it has been consumed, so
+ * producers fail to claim instead of overwriting when the ring is full.
+ */
+class AuditRingBuffer {
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    /**
+     * Mutable audit entry, only written between a successful claim and its publication.
+     */
+    static final class Slot {
+        long at;
+        String operation;
+        String accountId;
+        String targetAccountId;
+        BigDecimal amount;
+        String caller;
+        String error;
+    }
+
+    AuditRingBuffer(int capacity) {
+        if(capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Audit buffer capacity must be a power of two, got " + capacity);
+        }
+        this.slots = new Slot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the claimed sequence, or -1 when the ring is full
+     */
+    long tryClaim() {
+        while(true) {
+            final long current = claimed.get();
+            final long next = current + 1;
+            if(next - slots.length > consumed.get()) {
+                return -1;
+            }
+            if(claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.setRelease((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Hands at most {@code max} published slots to the consumer, in sequence order, stopping at the first one claimed
+     * but not yet published. Slots must not be retained after the call. Only one thread may drain.
+     *
+     * @return the number of slots consumed
+     */
+    int drain(Consumer<Slot> consumer, int max) {
+        final long first = consumed.get() + 1;
+        long sequence = first;
+        while(sequence - first < max && published.getAcquire((int) sequence & mask) == sequence) {
+            final Slot slot = slot(sequence);
+            consumer.accept(slot);
+            slot.amount = null;
+            slot.caller = null;
+            slot.error = null;
+            sequence++;
+        }
+        if(sequence != first) {
+            consumed.set(sequence - 1);
+        }
+        return (int) (sequence - first);
+    }
+
+    /**
+     * Claimed slots not consumed yet, including those still being filled.
+     */
+    long lag() {
+        return claimed.get() - consumed.get();
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,155 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.repository.AccountSavedEvent;
+
+/**
+ * In-process fan-out of balance updates to subscribers.
+ * Each subscriber has a bounded buffer drained on a shared executor: when a slow subscriber's buffer is full, its
+ * oldest pending update is dropped, since only the latest balance matters.
+ * Updates come from local saves, or from the outbox relay ({@code account.subscriptions.source=outbox}) so that
+ * subscribers also see writes made by other nodes.
+ */
+@Component
+@Lazy(false)
+public class BalanceHub {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BalanceHub.class);
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final int bufferSize;
+    private final Executor executor;
+    private final boolean outboxSource;
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Autowired
+    public BalanceHub(
+            @Value("${account.subscriptions.buffer-size:16}") int bufferSize,
+            @Value("${account.subscriptions.threads:4}") int threads,
+            @Value("${account.subscriptions.source:local}") String source,
+            Optional<OutboxRelay> relay
+    ) {
+        this(bufferSize, Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "balance-hub");
+            thread.setDaemon(true);
+            return thread;
+        }), "outbox".equals(source) && relay.isPresent());
+        if(outboxSource) {
+            relay.get().addListener(changes -> changes.forEach(change -> publish(change.account())));
+        }
+    }
+
+    BalanceHub(int bufferSize, Executor executor, boolean outboxSource) {
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        this.outboxSource = outboxSource;
+    }
+
+    public Runnable subscribe(String accountId, Consumer<Account> sink) {
+        final Subscriber subscriber = new Subscriber(accountId, sink, bufferSize);
+        subscribers.computeIfAbsent(accountId, __ -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        return () -> unsubscribe(subscriber);
+    }
+
+    @EventListener
+    public void onAccountSaved(AccountSavedEvent event) {
+        if(!outboxSource) {
+            publish(event.account());
+        }
+    }
+
+    public void publish(Account account) {
+        final Set<Subscriber> accountSubscribers = subscribers.get(account.id());
+        if(accountSubscribers == null) {
+            return;
+        }
+        for(Subscriber subscriber : accountSubscribers) {
+            subscriber.offer(account);
+            if(subscriber.draining.compareAndSet(false, true)) {
+                executor.execute(() -> drain(subscriber));
+            }
+        }
+    }
+
+    public long droppedUpdates() {
+        return dropped.get();
+    }
+
+    public int subscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    void drain(Subscriber subscriber) {
+        try {
+            Account account;
+            while((account = subscriber.buffer.poll()) != null) {
+                subscriber.sink.accept(account);
+            }
+        } catch (RuntimeException exception) {
+            LOGGER.debug("Dropping subscriber of account {}", subscriber.accountId, exception);
+            unsubscribe(subscriber);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        if(!subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.accountId, (__, accountSubscribers) -> {
+            accountSubscribers.remove(subscriber);
+            return accountSubscribers.isEmpty() ? null : accountSubscribers;
+        });
+        subscriber.buffer.clear();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    final class Subscriber {
+        final String accountId;
+        final Consumer<Account> sink;
+        final ArrayBlockingQueue<Account> buffer;
+        final AtomicBoolean draining = new AtomicBoolean(false);
+
+        Subscriber(String accountId, Consumer<Account> sink, int bufferSize) {
+            this.accountId = accountId;
+            this.sink = sink;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Account account) {
+            while(!buffer.offer(account)) {
+                if(buffer.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.BalanceAdjustment;
+import fr.maif.testpourneplusdouter.account.model.BatchRun;
+import fr.maif.testpourneplusdouter.account.model.KeyRange;
+import fr.maif.testpourneplusdouter.account.repository.BatchRepository;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vavr.control.Either;
+
+/**
+ * Applies interest or fees to every open account. The id space is split in {@link KeyRange#hexPrefixes} partitions
+ * processed in parallel by a fork/join pool; each partition is scanned in keyset-ordered chunks, each chunk being
+ * one transaction of {@link BatchRepository#processChunk}. Starting a run again with the same id resumes it from its
+ * checkpoints.
+ */
+@Component
+@PostgresStorage
+public class BatchEngine {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchEngine.class);
+
+    private final BatchRepository repository;
+    private final List<KeyRange> partitions;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final Counter processedAccounts;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final AtomicLong throughput = new AtomicLong();
+
+    public BatchEngine(
+            BatchRepository repository,
+            MeterRegistry registry,
+            @Value("${account.batch.partition-digits:2}") int partitionDigits,
+            @Value("${account.batch.chunk-size:1000}") int chunkSize,
+            @Value("${account.batch.parallelism:4}") int parallelism
+    ) {
+        this.repository = repository;
+        this.partitions = KeyRange.hexPrefixes(partitionDigits);
+        this.chunkSize = chunkSize;
+        this.pool = new ForkJoinPool(parallelism);
+        this.processedAccounts = registry.counter("account.batch.processed");
+        registry.gauge("account.batch.throughput", throughput, AtomicLong::get);
+    }
+
+    /**
+     * Registers the run and starts it in the background, the returned run holds the progress made by previous
+     * attempts.
+     */
+    public Either<Error, BatchRun> start(String runId, BalanceAdjustment adjustment) {
+        if(adjustment.kind() == null || adjustment.amount() == null || adjustment.amount().signum() < 0) {
+            return Either.left(Error.INVALID_BATCH);
+        }
+        if(!running.add(runId)) {
+            return Either.left(Error.BATCH_ALREADY_RUNNING);
+        }
+        final Either<Error, BatchRun> run = repository.startRun(runId, adjustment)
+                .flatMap(started -> repository.checkpoints(runId).map(checkpoints -> {
+                    pool.execute(() -> run(started, checkpoints));
+                    return started;
+                }));
+        if(run.isLeft()) {
+            running.remove(runId);
+        }
+        return run;
+    }
+
+    public Either<Error, BatchRun> progress(String runId) {
+        return repository.read(runId);
+    }
+
+    void run(BatchRun run, Map<Integer, BatchRepository.Checkpoint> checkpoints) {
+        final long start = System.nanoTime();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        try {
+            pool.invoke(new PartitionTask(run, partitions, checkpoints, processed, failed, start));
+            final long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if(failed.get()) {
+                LOGGER.warn("Batch {} interrupted after {} accounts, start it again to resume", run.id(), processed.get());
+            } else {
+                repository.finish(run.id());
+                LOGGER.info(
+                        "Batch {} processed {} accounts in {} ms ({} accounts/s)",
+                        run.id(), processed.get(), elapsedMs, processed.get() * 1000 / elapsedMs
+                );
+            }
+        } finally {
+            throughput.set(0);
+            running.remove(run.id());
+        }
+    }
+
+    /**
+     * Processes one partition from its checkpoint until its last chunk, stops at the first error.
+     */
+    void processPartition(
+            BatchRun run,
+            KeyRange range,
+            BatchRepository.Checkpoint checkpoint,
+            AtomicLong processed,
+            AtomicBoolean failed,
+            long start
+    ) {
+        if(checkpoint != null && checkpoint.done()) {
+            return;
+        }
+        String after = checkpoint == null ? null : checkpoint.lastId();
+        while(!failed.get()) {
+            final Either<Error, BatchRepository.Chunk> chunk =
+                    repository.processChunk(run.id(), range, after, chunkSize, run.adjustment());
+            if(chunk.isLeft()) {
+                LOGGER.error("Batch {} failed on partition {}: {}", run.id(), range.index(), chunk.getLeft());
+                failed.set(true);
+                return;
+            }
+            final long total = processed.addAndGet(chunk.get().read());
+            processedAccounts.increment(chunk.get().read());
+            final long elapsedNanos = Math.max(1, System.nanoTime() - start);
+            throughput.set(total * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+            if(chunk.get().last()) {
+                return;
+            }
+            after = chunk.get().lastId();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    final class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BatchRun run;
+        private final List<KeyRange> ranges;
+        private final Map<Integer, BatchRepository.Checkpoint> checkpoints;
+        private final AtomicLong processed;
+        private final AtomicBoolean failed;
+        private final long start;
+
+        PartitionTask(
+                BatchRun run,
+                List<KeyRange> ranges,
+                Map<Integer, BatchRepository.Checkpoint> checkpoints,
+                AtomicLong processed,
+                AtomicBoolean failed,
+                long start
+        ) {
+            this.run = run;
+            this.ranges = ranges;
+            this.checkpoints = checkpoints;
+            this.processed = processed;
+            this.failed = failed;
+            this.start = start;
+        }
+
+        @Override
+        protected void compute() {
+            if(ranges.size() == 1) {
+                final KeyRange range = ranges.get(0);
+                processPartition(run, range, checkpoints.get(range.index()), processed, failed, start);
+                return;
+            }
+            final int middle = ranges.size() / 2;
+            invokeAll(
+                    new PartitionTask(run, ranges.subList(0, middle), checkpoints, processed, failed, start),
+                    new PartitionTask(run, ranges.subList(middle, ranges.size()), checkpoints, processed, failed, start)
+            );
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Static cluster membership: every node is configured with the same {@code account.cluster.nodes} list and its own
+ * address in {@code account.cluster.self}, and derives the same consistent hash ring from them. Each account is
+ * owned by exactly one node, which serves all its requests.
+ * <p>
+ * When the cluster is disabled, the node owns every account.
+ */
+@Component
+public class ClusterMembership {
+    private final boolean enabled;
+    private final String self;
+    private final List<String> nodes;
+    private final HashRing ring;
+
+    public ClusterMembership(
+            @Value("${account.cluster.enabled:false}") boolean enabled,
+            @Value("${account.cluster.self:}") String self,
+            @Value("${account.cluster.nodes:}") String nodes,
+            @Value("${account.cluster.virtual-nodes:128}") int virtualNodes
+    ) {
+        this.self = normalize(self);
+        this.nodes = Arrays.stream(nodes.split(","))
+                .map(ClusterMembership::normalize)
+                .filter(node -> !node.isEmpty())
+                .distinct()
+                .collect(Collectors.toUnmodifiableList());
+        this.enabled = enabled;
+        if(enabled && !this.nodes.contains(this.self)) {
+            throw new IllegalArgumentException("account.cluster.self (" + self + ") must be one of account.cluster.nodes");
+        }
+        this.ring = enabled ? new HashRing(this.nodes, virtualNodes) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Base URL of the node owning the account.
+     */
+    public String ownerOf(String accountId) {
+        return enabled ? ring.nodeFor(accountId) : self;
+    }
+
+    public boolean isOwner(String accountId) {
+        return !enabled || self.equals(ring.nodeFor(accountId));
+    }
+
+    static String normalize(String node) {
+        final String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
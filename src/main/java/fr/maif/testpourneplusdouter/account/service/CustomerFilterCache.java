@@ -0,0 +1,143 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import fr.maif.testpourneplusdouter.account.model.CustomerFilters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Local copy of the customer Bloom filters, pulled periodically from the customer API.
+ * A filter that could not be refreshed for longer than {@code api.customer.filter.max-age} is dropped.
+ * A customer created after the last pull is absent from the filter, so a negative answer is only trusted while the
+ * pull is younger than {@code api.customer.filter.negative-max-age}: a new customer is rejected for at most that
+ * long, after which lookups fall through to the customer API until the next pull.
+ */
+@Component
+@Lazy(false)
+public class CustomerFilterCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerFilterCache.class);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private final String customerApiUrl;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final Duration negativeMaxAge;
+    private final Counter shortCircuits;
+    private final Counter remoteHits;
+    private final Counter falsePositives;
+    private final AtomicLong version = new AtomicLong(-1);
+    private volatile CustomerFilters filters;
+    private volatile long refreshedAt;
+
+    public CustomerFilterCache(
+            @Value("${api.customer.url}") String customerApiUrl,
+            @Value("${api.customer.filter.enabled:false}") boolean enabled,
+            @Value("${api.customer.filter.max-age:PT5M}") Duration maxAge,
+            @Value("${api.customer.filter.negative-max-age:PT5S}") Duration negativeMaxAge,
+            MeterRegistry registry
+    ) {
+        this.customerApiUrl = customerApiUrl;
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.negativeMaxAge = negativeMaxAge;
+        this.shortCircuits = registry.counter("customer.filter.short_circuits");
+        this.remoteHits = registry.counter("customer.filter.remote_hits");
+        this.falsePositives = registry.counter("customer.filter.false_positives");
+        registry.gauge("customer.filter.version", version);
+        registry.gauge("customer.filter.false_positive_rate", this, CustomerFilterCache::observedFalsePositiveRate);
+    }
+
+    /**
+     * True when a recent enough filter proves that the customer does not exist, so that the remote call can be skipped.
+     */
+    public boolean isDefinitelyUnknown(String customerId) {
+        final CustomerFilters current = currentFilters();
+        if(current != null
+                && System.currentTimeMillis() - refreshedAt <= negativeMaxAge.toMillis()
+                && !current.customers().mightContain(customerId)) {
+            shortCircuits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the outcome of a remote lookup the filter could not avoid.
+     * Lookups that fell through on a negative too old to be trusted say nothing about the false positive rate.
+     */
+    public void recordRemoteLookup(String customerId, boolean found) {
+        final CustomerFilters current = currentFilters();
+        if(current == null || !current.customers().mightContain(customerId)) {
+            return;
+        }
+        if(found) {
+            remoteHits.increment();
+        } else {
+            falsePositives.increment();
+        }
+    }
+
+    public CustomerFilters currentFilters() {
+        final CustomerFilters current = filters;
+        if(current != null && System.currentTimeMillis() - refreshedAt > maxAge.toMillis()) {
+            filters = null;
+            return null;
+        }
+        return current;
+    }
+
+    @Scheduled(fixedDelayString = "${api.customer.filter.refresh-ms:60000}")
+    public void refresh() {
+        if(!enabled) {
+            return;
+        }
+        final HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(customerApiUrl + "/customers/_filters"))
+                .header("Accept", "application/cbor");
+        if(filters != null) {
+            request.header("If-None-Match", "\"" + version.get() + "\"");
+        }
+
+        try {
+            final HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if(response.statusCode() == 304) {
+                refreshedAt = System.currentTimeMillis();
+            } else if(response.statusCode() == 200) {
+                final CustomerFilters fetched = cborMapper.readValue(response.body(), CustomerFilters.class);
+                filters = fetched;
+                version.set(fetched.version());
+                refreshedAt = System.currentTimeMillis();
+            } else {
+                LOGGER.warn("Failed to refresh customer filters, status {}", response.statusCode());
+            }
+        } catch (IOException exception) {
+            LOGGER.warn("Failed to refresh customer filters", exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    double observedFalsePositiveRate() {
+        final double falsePositiveCount = falsePositives.count();
+        final double total = falsePositiveCount + remoteHits.count();
+        return total == 0 ? 0 : falsePositiveCount / total;
+    }
+}
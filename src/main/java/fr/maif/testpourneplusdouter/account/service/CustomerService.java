@@ -2,9 +2,15 @@ package fr.maif.testpourneplusdouter.account.service;
 
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -13,38 +19,130 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.maif.testpourneplusdouter.account.model.Customer;
+import fr.maif.testpourneplusdouter.account.model.CustomerFilters;
 import fr.maif.testpourneplusdouter.account.error.Error;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
 import io.vavr.control.Either;
 
 @Service
 public class CustomerService {
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
     private final HttpClient client = HttpClient.newHttpClient();
     private final String customerApiUrl;
     private final ObjectMapper mapper;
+    private final CustomerFilterCache filters;
+    private final int maxCacheEntries;
+    private final OpenTelemetry openTelemetry;
+    private final Tracer tracer;
+    private final Map<String, CachedCustomer> cache = new ConcurrentHashMap<>();
+
+    record CachedCustomer(Customer customer, String etag, long expiresAt) {
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+    }
 
-    public CustomerService(@Value("${api.customer.url}") String customerApiUrl, ObjectMapper mapper) {
+    public CustomerService(
+            @Value("${api.customer.url}") String customerApiUrl,
+            ObjectMapper mapper,
+            CustomerFilterCache filters,
+            @Value("${api.customer.cache.max-entries:10000}") int maxCacheEntries,
+            OpenTelemetry openTelemetry
+    ) {
         this.customerApiUrl = customerApiUrl;
         this.mapper = mapper;
+        this.filters = filters;
+        this.maxCacheEntries = maxCacheEntries;
+        this.openTelemetry = openTelemetry;
+        this.tracer = openTelemetry.getTracer("fr.maif.testpourneplusdouter");
     }
 
     public CompletableFuture<Either<Error, Customer>> fetchCustomer(String id) {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(customerApiUrl + "/customers/" + id))
-                .build();
+        if(filters.isDefinitelyUnknown(id)) {
+            return CompletableFuture.completedFuture(Either.left(Error.CUSTOMER_DOES_NOT_EXISTS));
+        }
+
+        final CachedCustomer cached = cache.get(id);
+        if(cached != null && cached.isFresh(System.currentTimeMillis()) && !mayHaveBeenBanned(cached.customer())) {
+            return CompletableFuture.completedFuture(Either.right(cached.customer()));
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(customerApiUrl + "/customers/" + id));
+        if(cached != null && cached.etag() != null) {
+            request.header("If-None-Match", cached.etag());
+        }
+
+        final Span span = tracer.spanBuilder("GET /customers/{id}")
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("http.method", "GET")
+                .setAttribute("peer.service", "customer")
+                .startSpan();
+        openTelemetry.getPropagators().getTextMapPropagator()
+                .inject(Context.current().with(span), request, HttpRequest.Builder::header);
 
-        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, exception) -> {
+                    if(exception != null) {
+                        span.recordException(exception);
+                        span.setStatus(StatusCode.ERROR);
+                    } else {
+                        span.setAttribute("http.status_code", response.statusCode());
+                    }
+                    span.end();
+                })
                 .thenApply(response -> {
-                    if(response.statusCode() == 404) {
+                    if(response.statusCode() == 304 && cached != null) {
+                        store(id, cached.customer(), response.headers());
+                        return Either.right(cached.customer());
+                    } else if(response.statusCode() == 404) {
+                        cache.remove(id);
+                        filters.recordRemoteLookup(id, false);
                         return Either.left(Error.CUSTOMER_DOES_NOT_EXISTS);
-                    } else if(response.statusCode() >= 400) {
+                    } else if(response.statusCode() >= 300) {
                         return Either.left(Error.CUSTOMER_FETCH_ERROR);
                     } else {
+                        filters.recordRemoteLookup(id, true);
                         try {
-                            return Either.right(mapper.readValue(response.body(), Customer.class));
+                            final Customer customer = mapper.readValue(response.body(), Customer.class);
+                            store(id, customer, response.headers());
+                            return Either.right(customer);
                         } catch (JsonProcessingException e) {
                             return Either.left(Error.CUSTOMER_FETCH_ERROR);
                         }
                     }
                 });
     }
+
+    /**
+     * A cached unbanned customer that appears in the banned filter is revalidated before its cache entry expires.
+     */
+    boolean mayHaveBeenBanned(Customer customer) {
+        final CustomerFilters current = filters.currentFilters();
+        return !customer.banned() && current != null && current.banned().mightContain(customer.id());
+    }
+
+    void store(String id, Customer customer, HttpHeaders headers) {
+        final String cacheControl = headers.firstValue("Cache-Control").orElse("");
+        final Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        if(cacheControl.contains("no-store") || !maxAge.find()) {
+            cache.remove(id);
+            return;
+        }
+        if(cache.size() >= maxCacheEntries && !cache.containsKey(id)) {
+            final Iterator<String> keys = cache.keySet().iterator();
+            if(keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        final long expiresAt = System.currentTimeMillis() + Long.parseLong(maxAge.group(1)) * 1000;
+        cache.put(id, new CachedCustomer(customer, headers.firstValue("ETag").orElse(null), expiresAt));
+    }
 }
@@ -0,0 +1,145 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Starts the always-on recording and on-demand recordings, so that production hot paths can be profiled
+ * without redeploying or restarting the JVM with {@code -XX:StartFlightRecording}.
+ */
+@Component
+@Lazy(false)
+public class FlightRecordings {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlightRecordings.class);
+    public static final String ALWAYS_ON = "always-on";
+    private static final String ALWAYS_ON_SETTINGS = "/jfr/account-always-on.jfc";
+
+    private final boolean alwaysOn;
+    private final Duration alwaysOnMaxAge;
+    private final DataSize alwaysOnMaxSize;
+
+    public FlightRecordings(
+            @Value("${account.jfr.always-on.enabled:true}") boolean alwaysOn,
+            @Value("${account.jfr.always-on.max-age:PT1H}") Duration alwaysOnMaxAge,
+            @Value("${account.jfr.always-on.max-size:100MB}") DataSize alwaysOnMaxSize
+    ) {
+        this.alwaysOn = alwaysOn;
+        this.alwaysOnMaxAge = alwaysOnMaxAge;
+        this.alwaysOnMaxSize = alwaysOnMaxSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startAlwaysOn() {
+        if(!alwaysOn || !FlightRecorder.isAvailable()) {
+            return;
+        }
+        try {
+            final Recording recording = start(ALWAYS_ON, null);
+            recording.setMaxAge(alwaysOnMaxAge);
+            recording.setMaxSize(alwaysOnMaxSize.toBytes());
+            recording.setDumpOnExit(true);
+            LOGGER.info("Started always-on flight recording {}", recording.getId());
+        } catch (IOException | ParseException exception) {
+            LOGGER.warn("Failed to start always-on flight recording", exception);
+        }
+    }
+
+    /**
+     * @param settings {@code always-on}, or one of the JDK configurations ({@code default}, {@code profile})
+     * @param duration stops the recording after this duration, runs until stopped when null
+     */
+    public Recording start(String settings, Duration duration) throws IOException, ParseException {
+        final Recording recording = new Recording(configuration(settings));
+        recording.setName(settings);
+        recording.setToDisk(true);
+        if(duration != null) {
+            recording.setDuration(duration);
+        }
+        recording.start();
+        return recording;
+    }
+
+    public List<Recording> recordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings();
+    }
+
+    public Optional<Recording> find(long id) {
+        return recordings().stream().filter(recording -> recording.getId() == id).findFirst();
+    }
+
+    /**
+     * Writes what the recording currently holds to a temporary file, that the caller deletes once sent; the
+     * recording keeps running.
+     */
+    public Optional<Path> dump(long id) throws IOException {
+        final Optional<Recording> recording = find(id);
+        if(recording.isEmpty()) {
+            return Optional.empty();
+        }
+        final Path file = Files.createTempFile("account-" + id + "-", ".jfr");
+        try {
+            recording.get().dump(file);
+        } catch (IOException | RuntimeException exception) {
+            Files.deleteIfExists(file);
+            throw exception;
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * Stops recording new events; what the recording holds can still be dumped until it is {@link #close closed}.
+     */
+    public Optional<Recording> stop(long id) {
+        final Optional<Recording> recording = find(id);
+        recording.ifPresent(running -> {
+            if(running.getState() == RecordingState.RUNNING || running.getState() == RecordingState.DELAYED) {
+                running.stop();
+            }
+        });
+        return recording;
+    }
+
+    /**
+     * Stops the recording if needed and discards what it holds.
+     */
+    public Optional<Recording> close(long id) {
+        final Optional<Recording> recording = find(id);
+        recording.ifPresent(Recording::close);
+        return recording;
+    }
+
+    static Configuration configuration(String settings) throws IOException, ParseException {
+        if(settings == null || ALWAYS_ON.equals(settings)) {
+            try(final Reader reader = new InputStreamReader(
+                    Objects.requireNonNull(FlightRecordings.class.getResourceAsStream(ALWAYS_ON_SETTINGS)),
+                    StandardCharsets.UTF_8
+            )) {
+                return Configuration.create(reader);
+            }
+        }
+        return Configuration.getConfiguration(settings);
+    }
+}
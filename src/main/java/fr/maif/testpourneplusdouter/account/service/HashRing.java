@@ -0,0 +1,47 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring: each node is placed at {@code virtualNodes} points, and a key belongs to the first node
+ * clockwise from its hash. Adding or removing a node only moves the keys of the arcs it gains or loses.
+ */
+class HashRing {
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    HashRing(Collection<String> nodes, int virtualNodes) {
+        for(String node : nodes) {
+            for(int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    String nodeFor(String key) {
+        if(ring.isEmpty()) {
+            throw new IllegalStateException("Empty hash ring");
+        }
+        final Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, followed by the murmur3 finalizer to spread close keys over the ring.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for(byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,117 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.AccountChange;
+import fr.maif.testpourneplusdouter.account.repository.AccountChangeRepository;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import io.vavr.control.Either;
+
+/**
+ * Tails the account outbox and publishes new changes, batch by batch, to in-process listeners and long-polling
+ * consumers of the change feed.
+ */
+@Component
+@PostgresStorage
+@Lazy(false)
+public class OutboxRelay {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final AccountChangeRepository repository;
+    private final int batchSize;
+    private final Duration retention;
+    private final List<Consumer<List<AccountChange>>> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile long head = -1;
+
+    record Waiter(long after, CompletableFuture<Void> future) { }
+
+    public OutboxRelay(
+            AccountChangeRepository repository,
+            @Value("${account.outbox.batch-size:500}") int batchSize,
+            @Value("${account.outbox.retention:P7D}") Duration retention
+    ) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.retention = retention;
+    }
+
+    public void addListener(Consumer<List<AccountChange>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Completes once a change with a sequence greater than the given one has been relayed, or when the timeout expires.
+     */
+    public CompletableFuture<Void> awaitChangesAfter(long sequence, Duration timeout) {
+        if(head > sequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletableFuture<Void> future = new CompletableFuture<Void>()
+                .completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        waiters.add(new Waiter(sequence, future));
+        if(head > sequence) {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    @Scheduled(fixedDelayString = "${account.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if(head < 0) {
+            repository.lastSequence().forEach(sequence -> head = sequence);
+            return;
+        }
+
+        boolean mayHaveMore = true;
+        while(mayHaveMore) {
+            final Either<Error, List<AccountChange>> batch = repository.readChanges(head, batchSize);
+            if(batch.isLeft() || batch.get().isEmpty()) {
+                break;
+            }
+            final List<AccountChange> changes = batch.get();
+            head = changes.get(changes.size() - 1).sequence();
+            publish(changes);
+            mayHaveMore = changes.size() == batchSize;
+        }
+
+        final long current = head;
+        waiters.removeIf(waiter -> {
+            if(waiter.after() < current) {
+                waiter.future().complete(null);
+            }
+            return waiter.future().isDone();
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${account.outbox.purge-interval-ms:3600000}")
+    public void purge() {
+        repository.purgeOlderThan(retention)
+                .forEach(count -> LOGGER.debug("Purged {} outbox records", count));
+    }
+
+    void publish(List<AccountChange> changes) {
+        for(Consumer<List<AccountChange>> listener : listeners) {
+            try {
+                listener.accept(changes);
+            } catch (RuntimeException exception) {
+                LOGGER.warn("Outbox listener failed", exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.AccountChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * In cluster mode, the node owning an account sees all its reads and writes: it caches the account and runs its
+ * writes one at a time, under a striped lock.
+ * <p>
+ * Writes still read the account from the database, the cache only serves reads. Local writes update it, and the
+ * outbox relay drops entries older than the versions it relays, which covers changes made elsewhere: credits of
+ * transfers executed by the owner of the source account, and batch runs. Reads may therefore lag behind those
+ * changes by one outbox poll interval at most. A state read from the database is not cached when changes were
+ * relayed during the read, since a newer version of the account may have been relayed before there was an entry to
+ * drop.
+ */
+@Component
+public class OwnedAccountCache {
+    private static final int LOCK_STRIPES = 1024;
+
+    private final ClusterMembership membership;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong relayedBatches = new AtomicLong();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public OwnedAccountCache(
+            ClusterMembership membership,
+            @Value("${account.cluster.cache-max-entries:100000}") int maxEntries,
+            Optional<OutboxRelay> relay,
+            MeterRegistry registry
+    ) {
+        this.membership = membership;
+        this.enabled = membership.isEnabled();
+        this.maxEntries = maxEntries;
+        for(int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.hits = registry.counter("account.cluster.cache", "result", "hit");
+        this.misses = registry.counter("account.cluster.cache", "result", "miss");
+        if(enabled) {
+            registry.gaugeMapSize("account.cluster.cache.size", Tags.empty(), accounts);
+            relay.ifPresent(outbox -> outbox.addListener(this::onRelayed));
+        }
+    }
+
+    static OwnedAccountCache disabled() {
+        return new OwnedAccountCache(new ClusterMembership(false, "", "", 0), 0, Optional.empty(), new SimpleMeterRegistry());
+    }
+
+    public Optional<Account> get(String accountId) {
+        if(!enabled) {
+            return Optional.empty();
+        }
+        final Account account = accounts.get(accountId);
+        (account == null ? misses : hits).increment();
+        return Optional.ofNullable(account);
+    }
+
+    /**
+     * Caches the state of an owned account after a local write.
+     */
+    public void put(Account account) {
+        if(enabled && membership.isOwner(account.id())) {
+            makeRoom();
+            accounts.put(account.id(), account);
+        }
+    }
+
+    /**
+     * To read before reading an account from the database, then given to {@link #putIfAbsent}.
+     */
+    public long relayedBatches() {
+        return relayedBatches.get();
+    }
+
+    /**
+     * Caches the state read from the database, unless a local write cached a newer one in the meantime, or changes
+     * were relayed since {@code relayedBatches} was read.
+     */
+    public void putIfAbsent(Account account, long relayedBatches) {
+        if(enabled && membership.isOwner(account.id())) {
+            makeRoom();
+            accounts.compute(
+                    account.id(),
+                    (id, cached) -> cached != null || this.relayedBatches.get() != relayedBatches ? cached : account
+            );
+        }
+    }
+
+    /**
+     * Counts the batch before dropping entries, so that a concurrent {@link #putIfAbsent} either sees the new count
+     * or runs before its entry is dropped.
+     */
+    void onRelayed(List<AccountChange> changes) {
+        relayedBatches.incrementAndGet();
+        changes.forEach(change -> invalidateIfOlder(change.account()));
+    }
+
+    /**
+     * Changes relayed late, older than the cached state, leave it in place.
+     */
+    void invalidateIfOlder(Account account) {
+        accounts.computeIfPresent(account.id(), (id, cached) -> cached.version() >= account.version() ? cached : null);
+    }
+
+    /**
+     * Runs a write on an account after the previous local writes on it.
+     */
+    public <T> T serialized(String accountId, Supplier<T> write) {
+        if(!enabled) {
+            return write.get();
+        }
+        final ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link #serialized(String, Supplier)} for a write on two accounts, locks are taken in stripe order.
+     */
+    public <T> T serialized(String first, String second, Supplier<T> write) {
+        if(!enabled) {
+            return write.get();
+        }
+        final int firstStripe = stripe(first);
+        final int secondStripe = stripe(second);
+        final ReentrantLock lower = locks[Math.min(firstStripe, secondStripe)];
+        final ReentrantLock upper = locks[Math.max(firstStripe, secondStripe)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return write.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String accountId) {
+        return locks[stripe(accountId)];
+    }
+
+    private static int stripe(String accountId) {
+        return Math.floorMod(accountId.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Drops an arbitrary entry when the cache is full, cheaper than tracking recency on every read.
+     */
+    private void makeRoom() {
+        if(accounts.size() >= maxEntries) {
+            final Iterator<String> ids = accounts.keySet().iterator();
+            if(ids.hasNext()) {
+                ids.next();
+                ids.remove();
+            }
+        }
+    }
+}
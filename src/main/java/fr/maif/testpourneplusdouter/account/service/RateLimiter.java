@@ -0,0 +1,95 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per account and per caller rate limits, checked before any database access.
+ * Buckets live in a bounded map and are evicted once refilled. When the map is full, new keys are let through
+ * rather than throttling legitimate traffic.
+ */
+@Component
+@Lazy(false)
+public class RateLimiter {
+    private final boolean enabled;
+    private final double accountPermitsPerSecond;
+    private final int accountBurst;
+    private final double callerPermitsPerSecond;
+    private final int callerBurst;
+    private final int maxKeys;
+    private final Map<String, TokenBucket> accountBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> callerBuckets = new ConcurrentHashMap<>();
+    private final Counter accountThrottled;
+    private final Counter callerThrottled;
+    private final Counter overflow;
+
+    public RateLimiter(
+            @Value("${account.rate-limit.enabled:true}") boolean enabled,
+            @Value("${account.rate-limit.account.per-second:50}") double accountPermitsPerSecond,
+            @Value("${account.rate-limit.account.burst:100}") int accountBurst,
+            @Value("${account.rate-limit.caller.per-second:500}") double callerPermitsPerSecond,
+            @Value("${account.rate-limit.caller.burst:1000}") int callerBurst,
+            @Value("${account.rate-limit.max-keys:100000}") int maxKeys,
+            MeterRegistry registry
+    ) {
+        this.enabled = enabled;
+        this.accountPermitsPerSecond = accountPermitsPerSecond;
+        this.accountBurst = accountBurst;
+        this.callerPermitsPerSecond = callerPermitsPerSecond;
+        this.callerBurst = callerBurst;
+        this.maxKeys = maxKeys;
+        this.accountThrottled = registry.counter("account.ratelimit.throttled", "key", "account");
+        this.callerThrottled = registry.counter("account.ratelimit.throttled", "key", "caller");
+        this.overflow = registry.counter("account.ratelimit.overflow");
+    }
+
+    public boolean tryAcquire(String accountId, String caller) {
+        if(!enabled) {
+            return true;
+        }
+        final long now = System.nanoTime();
+        if(!tryAcquire(accountBuckets, accountId, accountPermitsPerSecond, accountBurst, now)) {
+            accountThrottled.increment();
+            return false;
+        }
+        if(!tryAcquire(callerBuckets, caller, callerPermitsPerSecond, callerBurst, now)) {
+            callerThrottled.increment();
+            return false;
+        }
+        return true;
+    }
+
+    boolean tryAcquire(Map<String, TokenBucket> buckets, String key, double permitsPerSecond, int burst, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if(bucket == null) {
+            if(buckets.size() >= maxKeys) {
+                evictIdle(buckets, now);
+                if(buckets.size() >= maxKeys) {
+                    overflow.increment();
+                    return true;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, __ -> new TokenBucket(permitsPerSecond, burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    @Scheduled(fixedDelayString = "${account.rate-limit.eviction-interval-ms:10000}")
+    public void evictIdleBuckets() {
+        final long now = System.nanoTime();
+        evictIdle(accountBuckets, now);
+        evictIdle(callerBuckets, now);
+    }
+
+    static void evictIdle(Map<String, TokenBucket> buckets, long now) {
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+}
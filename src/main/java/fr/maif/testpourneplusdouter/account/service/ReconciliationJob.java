@@ -0,0 +1,165 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.KeyRange;
+import fr.maif.testpourneplusdouter.account.model.RangeChecksum;
+import fr.maif.testpourneplusdouter.account.model.ReconciliationReport;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.repository.ReconciliationRepository;
+import io.vavr.control.Either;
+
+/**
+ * Computes a checksum of every account balance, range by range, and stores it under a snapshot name so that it can
+ * be compared with a later snapshot or with a replica.
+ * <p>
+ * Ranges are scanned in parallel within one exported snapshot; reads are throttled to
+ * {@code account.reconciliation.max-rows-per-second} overall so that the scan doesn't compete with regular
+ * traffic.
+ */
+@Component
+@PostgresStorage
+public class ReconciliationJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReconciliationJob.class);
+    static final String REPLICA_SUFFIX = "@replica";
+
+    private final ReconciliationRepository repository;
+    private final List<KeyRange> ranges;
+    private final int fetchSize;
+    private final TokenBucket throttle;
+    private final Optional<DataSource> replica;
+    private final ExecutorService executor;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public ReconciliationJob(
+            ReconciliationRepository repository,
+            @Value("${account.reconciliation.partition-digits:2}") int partitionDigits,
+            @Value("${account.reconciliation.fetch-size:10000}") int fetchSize,
+            @Value("${account.reconciliation.max-rows-per-second:500000}") int maxRowsPerSecond,
+            @Value("${account.reconciliation.parallelism:4}") int parallelism,
+            @Value("${account.reconciliation.replica.url:}") String replicaUrl,
+            @Value("${account.reconciliation.replica.user:}") String replicaUser,
+            @Value("${account.reconciliation.replica.password:}") String replicaPassword
+    ) {
+        this.repository = repository;
+        this.ranges = KeyRange.hexPrefixes(partitionDigits);
+        this.fetchSize = fetchSize;
+        this.throttle = new TokenBucket((double) maxRowsPerSecond / fetchSize, parallelism, System.nanoTime());
+        this.executor = Executors.newFixedThreadPool(parallelism);
+        if(replicaUrl.isBlank()) {
+            this.replica = Optional.empty();
+        } else {
+            final PGSimpleDataSource dataSource = new PGSimpleDataSource();
+            dataSource.setURL(replicaUrl);
+            dataSource.setUser(replicaUser);
+            dataSource.setPassword(replicaPassword);
+            this.replica = Optional.of(dataSource);
+        }
+    }
+
+    /**
+     * Starts computing the snapshot in the background. With {@code replica}, the replica is scanned as well and
+     * stored as the {@code <snapshot>@replica} snapshot.
+     */
+    public Either<Error, String> start(String snapshot, boolean withReplica) {
+        if(withReplica && replica.isEmpty()) {
+            return Either.left(Error.REPLICA_NOT_CONFIGURED);
+        }
+        if(!running.add(snapshot)) {
+            return Either.left(Error.RECONCILIATION_ALREADY_RUNNING);
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                scan(snapshot, repository.primary());
+                if(withReplica) {
+                    scan(snapshot + REPLICA_SUFFIX, replica.get());
+                }
+            } finally {
+                running.remove(snapshot);
+            }
+        });
+        return Either.right(snapshot);
+    }
+
+    /**
+     * Totals of the snapshot, compared with {@code compareTo} when given.
+     */
+    public Either<Error, ReconciliationReport> report(String snapshot, String compareTo) {
+        if(running.contains(snapshot)) {
+            return Either.left(Error.RECONCILIATION_ALREADY_RUNNING);
+        }
+        return repository.load(snapshot).flatMap(checksums -> compareTo == null
+                ? Either.right(ReconciliationReport.of(snapshot, checksums))
+                : repository.load(compareTo).map(other ->
+                        ReconciliationReport.compare(snapshot, checksums, compareTo, other, ranges)
+                ));
+    }
+
+    void scan(String snapshot, DataSource dataSource) {
+        final long start = System.nanoTime();
+        final Either<Error, ReconciliationRepository.ExportedSnapshot> exported = repository.exportSnapshot(dataSource);
+        if(exported.isLeft()) {
+            LOGGER.warn("Could not export a snapshot, ranges of {} will be read in distinct snapshots", snapshot);
+        }
+        final String snapshotId = exported.map(ReconciliationRepository.ExportedSnapshot::id).getOrNull();
+        try {
+            final List<CompletableFuture<Either<Error, RangeChecksum>>> futures = new ArrayList<>();
+            for(KeyRange range : ranges) {
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> repository.checksum(dataSource, snapshotId, range, fetchSize, this::awaitPermit),
+                        executor
+                ));
+            }
+            final List<RangeChecksum> checksums = new ArrayList<>();
+            for(CompletableFuture<Either<Error, RangeChecksum>> future : futures) {
+                final Either<Error, RangeChecksum> checksum = future.join();
+                if(checksum.isLeft()) {
+                    LOGGER.error("Reconciliation {} failed: {}", snapshot, checksum.getLeft());
+                    return;
+                }
+                checksums.add(checksum.get());
+            }
+            repository.save(snapshot, checksums);
+            final ReconciliationReport report = ReconciliationReport.of(snapshot, checksums);
+            LOGGER.info(
+                    "Reconciliation {} checked {} accounts in {} ms, total {}, root {}",
+                    snapshot, report.accounts(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    report.total(), report.root()
+            );
+        } catch (RuntimeException exception) {
+            LOGGER.error("Reconciliation " + snapshot + " failed", exception);
+        } finally {
+            exported.forEach(ReconciliationRepository.ExportedSnapshot::close);
+        }
+    }
+
+    private void awaitPermit() {
+        while(!throttle.tryAcquire(System.nanoTime())) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free count and sum over a sliding window, kept in a ring of {@code buckets} sub-windows. A bucket is an
+ * immutable value replaced by compare-and-set, so that its epoch, count and sum always change together and a
+ * bucket reused for a new sub-window can't lose a concurrent addition.
+ * <p>
+ * The window slides by whole buckets: totals cover between {@code buckets - 1} and {@code buckets} sub-windows.
+ */
+class SlidingWindowCounter {
+    private final long bucketNanos;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    private record Bucket(long epoch, long count, long sum) { }
+
+    SlidingWindowCounter(long windowNanos, int bucketCount) {
+        this.bucketNanos = Math.max(1, windowNanos / bucketCount);
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    void add(long now, long count, long sum) {
+        final long epoch = Math.floorDiv(now, bucketNanos);
+        final int index = (int) Math.floorMod(epoch, (long) buckets.length());
+        Bucket current;
+        Bucket next;
+        do {
+            current = buckets.get(index);
+            next = current == null || current.epoch() != epoch
+                    ? new Bucket(epoch, count, sum)
+                    : new Bucket(epoch, current.count() + count, current.sum() + sum);
+        } while(!buckets.compareAndSet(index, current, next));
+    }
+
+    /**
+     * Takes back an addition made at {@code now}, unless its bucket has been reused since, in which case it is no
+     * longer counted anyway.
+     */
+    void remove(long now, long count, long sum) {
+        final long epoch = Math.floorDiv(now, bucketNanos);
+        final int index = (int) Math.floorMod(epoch, (long) buckets.length());
+        Bucket current;
+        do {
+            current = buckets.get(index);
+            if(current == null || current.epoch() != epoch) {
+                return;
+            }
+        } while(!buckets.compareAndSet(index, current, new Bucket(epoch, current.count() - count, current.sum() - sum)));
+    }
+
+    /**
+     * Whether the totals of the window ending at {@code now} go over the limits, a limit of 0 meaning no limit.
+     */
+    boolean exceeds(long now, long maxCount, long maxSum) {
+        final long oldest = Math.floorDiv(now, bucketNanos) - buckets.length();
+        long count = 0;
+        long sum = 0;
+        for(int i = 0; i < buckets.length(); i++) {
+            final Bucket bucket = buckets.get(i);
+            if(bucket != null && bucket.epoch() > oldest) {
+                count += bucket.count();
+                sum += bucket.sum();
+            }
+        }
+        return (maxCount > 0 && count > maxCount) || (maxSum > 0 && sum > maxSum);
+    }
+
+    /**
+     * A counter whose buckets are all out of the window counts nothing, and can be forgotten.
+     */
+    boolean isIdle(long now) {
+        final long oldest = Math.floorDiv(now, bucketNanos) - buckets.length();
+        for(int i = 0; i < buckets.length(); i++) {
+            final Bucket bucket = buckets.get(i);
+            if(bucket != null && bucket.epoch() > oldest) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.MovementPage;
+import fr.maif.testpourneplusdouter.account.repository.MovementRepository;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import io.vavr.control.Either;
+
+/**
+ * Account statements, read page by page from the movements, and maintenance of the monthly movement partitions.
+ */
+@Service
+@PostgresStorage
+public class StatementService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementService.class);
+
+    private final MovementRepository repository;
+    private final int maxPageSize;
+
+    public StatementService(
+            MovementRepository repository,
+            @Value("${account.movements.max-page-size:1000}") int maxPageSize
+    ) {
+        this.repository = repository;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Movements of the account in {@code [from, to)}, starting after {@code cursor} when given.
+     */
+    public Either<Error, MovementPage> movements(String accountId, Instant from, Instant to, String cursor, int limit) {
+        if(from == null || to == null || !from.isBefore(to)) {
+            return Either.left(Error.INVALID_MOVEMENT_QUERY);
+        }
+        final Optional<MovementPage.Cursor> after = cursor == null ? Optional.empty() : MovementPage.Cursor.parse(cursor);
+        if(cursor != null && after.isEmpty()) {
+            return Either.left(Error.INVALID_MOVEMENT_QUERY);
+        }
+        final int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        return repository.movements(
+                accountId,
+                from,
+                to,
+                after.map(MovementPage.Cursor::at).orElse(null),
+                after.map(MovementPage.Cursor::id).orElse(null),
+                pageSize
+        ).map(movements -> MovementPage.of(movements, pageSize));
+    }
+
+    /**
+     * Partitions of the coming months are also created with the schema, this keeps them ahead on long-running
+     * instances.
+     */
+    @Scheduled(fixedDelayString = "${account.movements.partition-check-ms:86400000}")
+    public void createPartitions() {
+        repository.createPartitions(YearMonth.now(ZoneOffset.UTC))
+                .orElseRun(error -> LOGGER.warn("Could not create movement partitions: {}", error));
+    }
+}
@@ -0,0 +1,118 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel: level {@code l} has {@code 2^bits} slots of {@code 2^(bits * l)} ticks each. An item is
+ * placed on the lowest level whose span covers its deadline, and moved down a level each time the wheel reaches
+ * the slot it sits in, so that scheduling and expiring are O(1) whatever the number of pending items.
+ * <p>
+ * Not thread-safe, it is meant to be owned by a single ticking thread.
+ */
+class TimerWheel<T> {
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final List<List<ArrayDeque<Entry<T>>>> levels;
+    private final List<T> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    private record Entry<T>(long deadlineTick, T item) { }
+
+    TimerWheel(long tickMillis, int bits, int levelCount, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.bits = bits;
+        this.mask = (1 << bits) - 1;
+        this.levels = new ArrayList<>(levelCount);
+        for(int level = 0; level < levelCount; level++) {
+            final List<ArrayDeque<Entry<T>>> slots = new ArrayList<>(1 << bits);
+            for(int slot = 0; slot <= mask; slot++) {
+                slots.add(new ArrayDeque<>());
+            }
+            levels.add(slots);
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Farthest deadline the wheel can hold, in milliseconds from now.
+     */
+    long spanMillis() {
+        return ((1L << (bits * levels.size())) - 1) * tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds an item, returns false when its deadline is beyond {@link #spanMillis()}. Items whose deadline has
+     * already passed expire on the next {@link #advance}.
+     */
+    boolean schedule(long deadlineMillis, T item) {
+        final long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis);
+        if(deadlineTick - currentTick >= 1L << (bits * levels.size())) {
+            return false;
+        }
+        place(new Entry<>(deadlineTick, item));
+        size++;
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMillis} and hands every expired item to {@code expired}, in deadline order and
+     * in scheduling order for the same tick.
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        drainOverdue(expired);
+        final long nowTick = nowMillis / tickMillis;
+        while(currentTick < nowTick) {
+            currentTick++;
+            for(int level = levels.size() - 1; level > 0; level--) {
+                if((currentTick & ((1L << (bits * level)) - 1)) == 0) {
+                    final ArrayDeque<Entry<T>> slot = levels.get(level).get(slotIndex(currentTick, level));
+                    while(!slot.isEmpty()) {
+                        place(slot.poll());
+                    }
+                }
+            }
+            final ArrayDeque<Entry<T>> slot = levels.get(0).get(slotIndex(currentTick, 0));
+            while(!slot.isEmpty()) {
+                size--;
+                expired.accept(slot.poll().item());
+            }
+            drainOverdue(expired);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        final long delta = entry.deadlineTick() - currentTick;
+        if(delta <= 0) {
+            overdue.add(entry.item());
+            return;
+        }
+        int level = 0;
+        while(delta >= 1L << (bits * (level + 1))) {
+            level++;
+        }
+        levels.get(level).get(slotIndex(entry.deadlineTick(), level)).add(entry);
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (bits * level)) & mask);
+    }
+
+    private void drainOverdue(Consumer<T> expired) {
+        if(overdue.isEmpty()) {
+            return;
+        }
+        final List<T> items = new ArrayList<>(overdue);
+        overdue.clear();
+        size -= items.size();
+        items.forEach(expired);
+    }
+}
@@ -0,0 +1,40 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm: a single theoretical arrival time is moved
+ * forward by one emission interval per permit, and a permit is refused when it would go further than the burst
+ * allowance ahead of now.
+ */
+class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double permitsPerSecond, int burst, long now) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(1, burst);
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    boolean tryAcquire(long now) {
+        long current;
+        long next;
+        do {
+            current = theoreticalArrival.get();
+            next = Math.max(current, now) + emissionIntervalNanos;
+            if(next - now > burstToleranceNanos) {
+                return false;
+            }
+        } while(!theoreticalArrival.compareAndSet(current, next));
+        return true;
+    }
+
+    /**
+     * A bucket that is full again is equivalent to a new one, and can be forgotten.
+     */
+    boolean isIdle(long now) {
+        return theoreticalArrival.get() - now <= 0;
+    }
+}
@@ -0,0 +1,272 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ScheduledTransfer;
+import fr.maif.testpourneplusdouter.account.model.TransferResult;
+import fr.maif.testpourneplusdouter.account.repository.PostgresStorage;
+import fr.maif.testpourneplusdouter.account.repository.ScheduledTransferRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vavr.control.Either;
+
+/**
+ * Executes scheduled transfers and standing orders.
+ * <p>
+ * A single ticking thread owns a {@link TimerWheel}: every {@code load-horizon} it loads, page by page, the
+ * occurrences due before the end of the next horizon, and every tick it hands the expired ones to the executing
+ * lanes. Lanes are single threads chosen by source account, which bounds parallelism and keeps the transfers of
+ * one account in due date order. Nothing is kept in memory only: after a restart the overdue occurrences are loaded
+ * again and executed right away, and one-shot transfers left executing for more than {@code executing-timeout} by a
+ * stopped instance are reported as failed.
+ */
+@Component
+@PostgresStorage
+public class TransferScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferScheduler.class);
+
+    private final ScheduledTransferRepository repository;
+    private final AccountService accountService;
+    private final long tickMillis;
+    private final long horizonMillis;
+    private final long executingTimeoutMillis;
+    private final int batchSize;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService[] lanes;
+    private final TimerWheel<ScheduledTransfer> wheel;
+    private final Set<String> inWheel = new HashSet<>();
+    private final Counter executed;
+    private final Counter failed;
+    private volatile long loadedUntil;
+
+    public TransferScheduler(
+            ScheduledTransferRepository repository,
+            AccountService accountService,
+            MeterRegistry registry,
+            @Value("${account.scheduler.tick-ms:1000}") long tickMillis,
+            @Value("${account.scheduler.load-horizon-ms:600000}") long horizonMillis,
+            @Value("${account.scheduler.batch-size:500}") int batchSize,
+            @Value("${account.scheduler.parallelism:4}") int parallelism,
+            @Value("${account.scheduler.executing-timeout-ms:300000}") long executingTimeoutMillis
+    ) {
+        this.repository = repository;
+        this.accountService = accountService;
+        this.tickMillis = tickMillis;
+        this.horizonMillis = horizonMillis;
+        this.executingTimeoutMillis = executingTimeoutMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimerWheel<>(tickMillis, 6, 3, System.currentTimeMillis());
+        if(horizonMillis >= wheel.spanMillis()) {
+            throw new IllegalArgumentException("account.scheduler.load-horizon-ms must be below " + wheel.spanMillis());
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "transfer-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lanes = new ExecutorService[parallelism];
+        for(int lane = 0; lane < parallelism; lane++) {
+            final String name = "transfer-scheduler-lane-" + lane;
+            lanes[lane] = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.executed = registry.counter("account.scheduled.transfers", "result", "executed");
+        this.failed = registry.counter("account.scheduled.transfers", "result", "failed");
+        registry.gauge("account.scheduled.pending", inWheel, Set::size);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ticker.scheduleWithFixedDelay(this::tick, 0, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules a transfer from {@code source}, to execute at {@code executeAt} then every {@code recurrence} when
+     * it isn't null.
+     */
+    public Either<Error, ScheduledTransfer> schedule(
+            String source,
+            String target,
+            BigDecimal amount,
+            Instant executeAt,
+            Period recurrence
+    ) {
+        if(target == null || amount == null || amount.signum() <= 0 || executeAt == null || source.equals(target)
+                || (recurrence != null && (recurrence.isZero() || recurrence.isNegative()))) {
+            return Either.left(Error.INVALID_SCHEDULED_TRANSFER);
+        }
+        return accountService.read(source)
+                .flatMap(useless -> accountService.read(target))
+                .flatMap(useless -> repository.create(new ScheduledTransfer(
+                        UUID.randomUUID().toString(),
+                        source,
+                        target,
+                        amount,
+                        executeAt,
+                        recurrence,
+                        executeAt,
+                        ScheduledTransfer.Status.SCHEDULED,
+                        0,
+                        null
+                )))
+                .peek(this::enqueueIfLoaded);
+    }
+
+    public Either<Error, List<ScheduledTransfer>> list(String accountId) {
+        return repository.forAccount(accountId);
+    }
+
+    /**
+     * A cancelled transfer may still be in the wheel, its claim will fail when it expires.
+     */
+    public Either<Error, ScheduledTransfer> cancel(String accountId, String transferId) {
+        return repository.cancel(accountId, transferId);
+    }
+
+    /**
+     * Runs a tick right away on the ticking thread, without waiting for the next one.
+     */
+    public Future<?> tickNow() {
+        return ticker.submit(this::tick);
+    }
+
+    void tick() {
+        try {
+            final long now = System.currentTimeMillis();
+            if(now + horizonMillis / 2 >= loadedUntil) {
+                failInterrupted(now - executingTimeoutMillis);
+                load(now + horizonMillis);
+            }
+            wheel.advance(now, this::dispatch);
+        } catch (RuntimeException exception) {
+            LOGGER.error("Scheduled transfers tick failed", exception);
+        }
+    }
+
+    void failInterrupted(long claimedBefore) {
+        repository.failInterrupted(Instant.ofEpochMilli(claimedBefore)).fold(
+                error -> {
+                    LOGGER.warn("Could not check for interrupted scheduled transfers: {}", error);
+                    return null;
+                },
+                interrupted -> {
+                    interrupted.forEach(transfer -> {
+                        failed.increment();
+                        LOGGER.warn("Scheduled transfer {} of account {} was interrupted while executing, "
+                                + "check the account movements", transfer.id(), transfer.source());
+                    });
+                    return null;
+                }
+        );
+    }
+
+    /**
+     * Loads the occurrences due before {@code until} that are not in the wheel yet. On a database error the horizon
+     * is left as it was, loading is attempted again on the next tick.
+     */
+    void load(long until) {
+        Instant afterExecuteAt = null;
+        String afterId = null;
+        while(true) {
+            final Either<Error, List<ScheduledTransfer>> page =
+                    repository.due(Instant.ofEpochMilli(until), afterExecuteAt, afterId, batchSize);
+            if(page.isLeft()) {
+                LOGGER.warn("Could not load scheduled transfers: {}", page.getLeft());
+                return;
+            }
+            page.get().forEach(this::enqueue);
+            if(page.get().size() < batchSize) {
+                break;
+            }
+            final ScheduledTransfer last = page.get().get(page.get().size() - 1);
+            afterExecuteAt = last.executeAt();
+            afterId = last.id();
+        }
+        loadedUntil = until;
+    }
+
+    /**
+     * Runs on the ticking thread only.
+     */
+    private void enqueue(ScheduledTransfer transfer) {
+        if(inWheel.add(transfer.id()) && !wheel.schedule(transfer.executeAt().toEpochMilli(), transfer)) {
+            inWheel.remove(transfer.id());
+        }
+    }
+
+    private void enqueueIfLoaded(ScheduledTransfer transfer) {
+        if(transfer.executeAt().toEpochMilli() < loadedUntil) {
+            ticker.execute(() -> enqueue(transfer));
+        }
+    }
+
+    private void dispatch(ScheduledTransfer transfer) {
+        inWheel.remove(transfer.id());
+        lanes[Math.floorMod(transfer.source().hashCode(), lanes.length)].execute(() -> execute(transfer));
+    }
+
+    void execute(ScheduledTransfer transfer) {
+        final Either<Error, Boolean> claimed = repository.claim(transfer);
+        if(claimed.isLeft() || !claimed.get()) {
+            return;
+        }
+        final Either<Error, TransferResult> result =
+                accountService.transfer(transfer.source(), transfer.target(), transfer.amount());
+        if(result.isLeft()) {
+            failed.increment();
+            LOGGER.info("Scheduled transfer {} failed: {}", transfer.id(), result.getLeft());
+        } else {
+            executed.increment();
+        }
+        final Either<Error, Boolean> completed = repository.complete(transfer, result.isLeft() ? result.getLeft() : null);
+        if(completed.isLeft()) {
+            LOGGER.warn("Could not record the outcome of scheduled transfer {}: {}", transfer.id(), completed.getLeft());
+        }
+        if(transfer.isRecurring()) {
+            enqueueIfLoaded(new ScheduledTransfer(
+                    transfer.id(),
+                    transfer.source(),
+                    transfer.target(),
+                    transfer.amount(),
+                    transfer.startAt(),
+                    transfer.recurrence(),
+                    transfer.nextExecution(),
+                    ScheduledTransfer.Status.SCHEDULED,
+                    transfer.executions() + 1,
+                    null
+            ));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        for(ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
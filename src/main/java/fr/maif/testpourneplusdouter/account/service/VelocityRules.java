@@ -0,0 +1,208 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+
+/**
+ * Velocity limits on outgoing money: number of debits and debited amount per account and per customer, over the
+ * last minute and the last hour. Checked in memory with {@link SlidingWindowCounter}s, without any database access.
+ * <p>
+ * A debit is recorded on every window before being checked, and taken back from all of them when one limit is
+ * exceeded: concurrent debits close to a limit may both be refused, never both accepted. Like the
+ * {@link RateLimiter}, counters live in bounded maps, are evicted once their windows are empty, and new keys are let
+ * through when the maps are full.
+ */
+@Component
+@Lazy(false)
+public class VelocityRules {
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+    private static final long HOUR = Duration.ofHours(1).toNanos();
+    private static final int BUCKETS = 12;
+
+    record Rule(long windowNanos, long maxCount, long maxCents) { }
+
+    private final boolean enabled;
+    private final List<Rule> accountRules;
+    private final List<Rule> customerRules;
+    private final int maxKeys;
+    private final Map<String, SlidingWindowCounter[]> accountCounters = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindowCounter[]> customerCounters = new ConcurrentHashMap<>();
+    private final Counter accountBlocked;
+    private final Counter customerBlocked;
+    private final Counter overflow;
+
+    public VelocityRules(
+            @Value("${account.velocity.enabled:true}") boolean enabled,
+            @Value("${account.velocity.account.per-minute.max-count:20}") long accountMinuteCount,
+            @Value("${account.velocity.account.per-minute.max-amount:10000}") BigDecimal accountMinuteAmount,
+            @Value("${account.velocity.account.per-hour.max-count:100}") long accountHourCount,
+            @Value("${account.velocity.account.per-hour.max-amount:50000}") BigDecimal accountHourAmount,
+            @Value("${account.velocity.customer.per-minute.max-count:40}") long customerMinuteCount,
+            @Value("${account.velocity.customer.per-minute.max-amount:20000}") BigDecimal customerMinuteAmount,
+            @Value("${account.velocity.customer.per-hour.max-count:200}") long customerHourCount,
+            @Value("${account.velocity.customer.per-hour.max-amount:100000}") BigDecimal customerHourAmount,
+            @Value("${account.velocity.max-keys:100000}") int maxKeys,
+            MeterRegistry registry
+    ) {
+        this(
+                enabled,
+                List.of(
+                        new Rule(MINUTE, accountMinuteCount, toCents(accountMinuteAmount)),
+                        new Rule(HOUR, accountHourCount, toCents(accountHourAmount))
+                ),
+                List.of(
+                        new Rule(MINUTE, customerMinuteCount, toCents(customerMinuteAmount)),
+                        new Rule(HOUR, customerHourCount, toCents(customerHourAmount))
+                ),
+                maxKeys,
+                registry
+        );
+    }
+
+    VelocityRules(boolean enabled, List<Rule> accountRules, List<Rule> customerRules, int maxKeys, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.accountRules = accountRules;
+        this.customerRules = customerRules;
+        this.maxKeys = maxKeys;
+        this.accountBlocked = registry.counter("account.velocity.blocked", "key", "account");
+        this.customerBlocked = registry.counter("account.velocity.blocked", "key", "customer");
+        this.overflow = registry.counter("account.velocity.overflow");
+    }
+
+    static VelocityRules disabled() {
+        return new VelocityRules(false, List.of(), List.of(), 0, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Records a debit of {@code amount} from the account, or refuses it with {@link Error#VELOCITY_LIMIT_EXCEEDED}
+     * when it would exceed a limit of the account or of its customer.
+     */
+    public Either<Error, Account> check(Account account, BigDecimal amount) {
+        return check(account, amount, System.nanoTime());
+    }
+
+    Either<Error, Account> check(Account account, BigDecimal amount, long now) {
+        if(!enabled) {
+            return Either.right(account);
+        }
+        final long cents = toCents(amount);
+        final SlidingWindowCounter[] forAccount = counters(accountCounters, accountRules, account.id(), now);
+        if(!tryRecord(forAccount, accountRules, now, cents)) {
+            accountBlocked.increment();
+            return Either.left(Error.VELOCITY_LIMIT_EXCEEDED);
+        }
+        final SlidingWindowCounter[] forCustomer = account.customer() == null
+                ? null
+                : counters(customerCounters, customerRules, account.customer(), now);
+        if(!tryRecord(forCustomer, customerRules, now, cents)) {
+            undo(forAccount, accountRules.size(), now, cents);
+            customerBlocked.increment();
+            return Either.left(Error.VELOCITY_LIMIT_EXCEEDED);
+        }
+        return Either.right(account);
+    }
+
+    /**
+     * Forgets a debit accepted by {@link #check} moments ago, that was finally not applied.
+     */
+    public void release(Account account, BigDecimal amount) {
+        release(account, amount, System.nanoTime());
+    }
+
+    void release(Account account, BigDecimal amount, long now) {
+        if(!enabled) {
+            return;
+        }
+        final long cents = toCents(amount);
+        undo(accountCounters.get(account.id()), accountRules.size(), now, cents);
+        if(account.customer() != null) {
+            undo(customerCounters.get(account.customer()), customerRules.size(), now, cents);
+        }
+    }
+
+    static boolean tryRecord(SlidingWindowCounter[] counters, List<Rule> rules, long now, long cents) {
+        if(counters == null) {
+            return true;
+        }
+        for(int i = 0; i < counters.length; i++) {
+            counters[i].add(now, 1, cents);
+            final Rule rule = rules.get(i);
+            if(counters[i].exceeds(now, rule.maxCount(), rule.maxCents())) {
+                undo(counters, i + 1, now, cents);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void undo(SlidingWindowCounter[] counters, int recorded, long now, long cents) {
+        if(counters == null) {
+            return;
+        }
+        for(int i = 0; i < recorded; i++) {
+            counters[i].remove(now, 1, cents);
+        }
+    }
+
+    /**
+     * Counters of the key, null when the map is full of active keys.
+     */
+    SlidingWindowCounter[] counters(Map<String, SlidingWindowCounter[]> counters, List<Rule> rules, String key, long now) {
+        SlidingWindowCounter[] keyCounters = counters.get(key);
+        if(keyCounters == null) {
+            if(counters.size() >= maxKeys) {
+                evictIdle(counters, now);
+                if(counters.size() >= maxKeys) {
+                    overflow.increment();
+                    return null;
+                }
+            }
+            keyCounters = counters.computeIfAbsent(key, __ -> {
+                final SlidingWindowCounter[] created = new SlidingWindowCounter[rules.size()];
+                for(int i = 0; i < created.length; i++) {
+                    created[i] = new SlidingWindowCounter(rules.get(i).windowNanos(), BUCKETS);
+                }
+                return created;
+            });
+        }
+        return keyCounters;
+    }
+
+    @Scheduled(fixedDelayString = "${account.velocity.eviction-interval-ms:60000}")
+    public void evictIdleCounters() {
+        final long now = System.nanoTime();
+        evictIdle(accountCounters, now);
+        evictIdle(customerCounters, now);
+    }
+
+    static void evictIdle(Map<String, SlidingWindowCounter[]> counters, long now) {
+        counters.values().removeIf(keyCounters -> {
+            for(SlidingWindowCounter counter : keyCounters) {
+                if(!counter.isIdle(now)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
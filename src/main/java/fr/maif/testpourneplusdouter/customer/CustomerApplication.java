@@ -2,9 +2,14 @@ package fr.maif.testpourneplusdouter.customer;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+import fr.maif.testpourneplusdouter.account.configuration.BinaryFormatConfiguration;
+import fr.maif.testpourneplusdouter.account.configuration.TracingConfiguration;
 
 
 @SpringBootApplication
+@Import({BinaryFormatConfiguration.class, TracingConfiguration.class})
 public class CustomerApplication {
     public static void main(String[] args) {
         SpringApplication.run(CustomerApplication.class, args);
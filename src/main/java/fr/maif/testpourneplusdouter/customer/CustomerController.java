@@ -1,13 +1,22 @@
 package fr.maif.testpourneplusdouter.customer;
 
+import java.time.Duration;
 import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import fr.maif.testpourneplusdouter.account.model.Customer;
+import fr.maif.testpourneplusdouter.account.model.CustomerFilters;
 
 @RestController
 public class CustomerController {
@@ -15,14 +24,59 @@ public class CustomerController {
     public static final Set<String> UNBANNED_CUSTOMERS = Set.of("bcavy", "sdaviet");
     public static final Set<String> BANNED_CUSTOMERS = Set.of("cdirand", "fvenere");
 
+    static final String ACTIVE_ETAG = "\"active\"";
+    static final String BANNED_ETAG = "\"banned\"";
+
+    private final CustomerDirectory directory;
+    private final CustomerFilterPublisher filterPublisher;
+    private final CacheControl cacheControl;
+
+    public CustomerController(
+            CustomerDirectory directory,
+            CustomerFilterPublisher filterPublisher,
+            @Value("${customer.cache.max-age:PT30S}") Duration maxAge
+    ) {
+        this.directory = directory;
+        this.filterPublisher = filterPublisher;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePrivate();
+    }
+
+    @GetMapping("/customers/_filters")
+    public ResponseEntity<CustomerFilters> readFilters(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        final CustomerFilters filters = filterPublisher.current();
+        final String etag = "\"" + filters.version() + "\"";
+        if(etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(filters);
+    }
+
+    /**
+     * The representation of a customer only depends on its banned flag, which is therefore used as ETag.
+     */
     @GetMapping("/customers/{id}")
-    public ResponseEntity<Customer> readCustomer(@PathVariable("id") String id) {
-        if(UNBANNED_CUSTOMERS.contains(id.toLowerCase())) {
-            return ResponseEntity.ok(new Customer(id, false));
-        } else if(BANNED_CUSTOMERS.contains(id.toLowerCase())) {
-            return ResponseEntity.ok(new Customer(id, true));
-        } else {
+    public ResponseEntity<Customer> readCustomer(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        final CustomerStatus status = directory.status(id);
+        if(status == CustomerStatus.UNKNOWN) {
             return ResponseEntity.notFound().build();
         }
+
+        final boolean banned = status == CustomerStatus.BANNED;
+        final String etag = banned ? BANNED_ETAG : ACTIVE_ETAG;
+        if(etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(new Customer(id, banned));
+    }
+
+    @PutMapping("/customers/{id}")
+    public ResponseEntity<Customer> updateCustomer(@PathVariable("id") String id, @RequestBody Customer customer) {
+        directory.put(id, customer.banned());
+        return ResponseEntity.ok(new Customer(id, customer.banned()));
     }
 }
@@ -0,0 +1,244 @@
+package fr.maif.testpourneplusdouter.customer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Customer index keyed by normalized (lowercased) id.
+ * Ids are stored back to back in a single char table, referenced from an open addressing hash table, and the
+ * banned flags are kept in a bitset, so that millions of customers fit in a few arrays.
+ * Lookups don't allocate and don't lock: the id is normalized char by char while hashing and comparing.
+ * Writes are serialized, and published to readers through the volatile writes of the slot array.
+ */
+public class CustomerDirectory {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_ESTIMATED_ENTRIES = 1 << 26;
+
+    private volatile Table table;
+    private volatile long version;
+
+    public interface EntryConsumer {
+        void accept(CharSequence id, boolean banned);
+    }
+
+    public CustomerDirectory() {
+        this(MIN_CAPACITY);
+    }
+
+    CustomerDirectory(int expectedSize) {
+        this.table = new Table(expectedSize, (int) Math.min(Integer.MAX_VALUE - 8, expectedSize * 12L));
+    }
+
+    public CustomerStatus status(CharSequence id) {
+        final Table current = table;
+        final int entry = current.find(id);
+        if(entry < 0) {
+            return CustomerStatus.UNKNOWN;
+        }
+        return current.isBanned(entry) ? CustomerStatus.BANNED : CustomerStatus.ACTIVE;
+    }
+
+    public int size() {
+        return table.entryCount;
+    }
+
+    /**
+     * Incremented on each modification.
+     */
+    public long version() {
+        return version;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        final Table current = table;
+        final int count = current.entryCount;
+        for(int entry = 0; entry < count; entry++) {
+            consumer.accept(current.idOf(entry), current.isBanned(entry));
+        }
+    }
+
+    public synchronized void put(CharSequence id, boolean banned) {
+        Table current = table;
+        int entry = current.find(id);
+        if(entry < 0) {
+            if(!current.hasRoomFor(id.length())) {
+                current = current.grow(id.length());
+                table = current;
+            }
+            entry = current.insert(id);
+        }
+        current.setBanned(entry, banned);
+        version++;
+    }
+
+    /**
+     * Replaces the whole directory with the content of a snapshot (updates made while loading are lost): CSV lines {@code id,banned}, or NDJSON lines
+     * {@code {"id": "...", "banned": true}} when the file name ends with .ndjson or .jsonl.
+     */
+    public void load(Path snapshot, ObjectMapper mapper) throws IOException {
+        final String fileName = snapshot.getFileName().toString();
+        final boolean json = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl");
+        final CustomerDirectory loaded = new CustomerDirectory(estimateEntries(snapshot));
+
+        try(final BufferedReader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.isBlank()) {
+                    continue;
+                }
+                if(json) {
+                    final JsonNode node = mapper.readTree(line);
+                    loaded.put(node.get("id").asText(), node.path("banned").asBoolean(false));
+                } else {
+                    final int separator = line.indexOf(',');
+                    final String id = (separator < 0 ? line : line.substring(0, separator)).trim();
+                    final String banned = separator < 0 ? "" : line.substring(separator + 1).trim();
+                    if(!id.equalsIgnoreCase("id")) {
+                        loaded.put(id, banned.equalsIgnoreCase("true") || banned.equals("1"));
+                    }
+                }
+            }
+        }
+
+        synchronized(this) {
+            table = loaded.table;
+            version++;
+        }
+    }
+
+    static int estimateEntries(Path snapshot) throws IOException {
+        return (int) Math.min(MAX_ESTIMATED_ENTRIES, Math.max(MIN_CAPACITY, Files.size(snapshot) / 16));
+    }
+
+    static int hash(CharSequence id) {
+        int hash = 0x811C9DC5;
+        for(int i = 0; i < id.length(); i++) {
+            hash = (hash ^ Character.toLowerCase(id.charAt(i))) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    static final class Table {
+        final char[] pool;
+        int poolSize;
+        final int[] entryOffsets;
+        final int[] entryLengths;
+        int entryCount;
+        final AtomicIntegerArray slots;
+        final AtomicLongArray banned;
+
+        Table(int entries, int poolCapacity) {
+            final int capacity = Math.max(MIN_CAPACITY, entries);
+            this.pool = new char[Math.max(poolCapacity, MIN_CAPACITY)];
+            this.entryOffsets = new int[capacity];
+            this.entryLengths = new int[capacity];
+            this.slots = new AtomicIntegerArray(Integer.highestOneBit(capacity - 1) << 2);
+            this.banned = new AtomicLongArray((capacity >>> 6) + 1);
+        }
+
+        int find(CharSequence id) {
+            final int mask = slots.length() - 1;
+            int slot = hash(id) & mask;
+            int value;
+            while((value = slots.get(slot)) != 0) {
+                final int entry = value - 1;
+                if(matches(entry, id)) {
+                    return entry;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        boolean matches(int entry, CharSequence id) {
+            final int length = entryLengths[entry];
+            if(length != id.length()) {
+                return false;
+            }
+            final int offset = entryOffsets[entry];
+            for(int i = 0; i < length; i++) {
+                if(pool[offset + i] != Character.toLowerCase(id.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean hasRoomFor(int length) {
+            return entryCount < entryOffsets.length && poolSize + length <= pool.length;
+        }
+
+        Table grow(int length) {
+            final Table grown = new Table(entryOffsets.length * 2, Math.max(pool.length * 2, poolSize + length));
+            for(int entry = 0; entry < entryCount; entry++) {
+                final int copy = grown.append(pool, entryOffsets[entry], entryLengths[entry]);
+                grown.setBanned(copy, isBanned(entry));
+                grown.index(copy, hashOf(entry));
+            }
+            return grown;
+        }
+
+        int insert(CharSequence id) {
+            final int entry = entryCount;
+            final int offset = poolSize;
+            for(int i = 0; i < id.length(); i++) {
+                pool[offset + i] = Character.toLowerCase(id.charAt(i));
+            }
+            poolSize += id.length();
+            entryOffsets[entry] = offset;
+            entryLengths[entry] = id.length();
+            entryCount++;
+            index(entry, hash(id));
+            return entry;
+        }
+
+        int append(char[] source, int offset, int length) {
+            final int entry = entryCount;
+            System.arraycopy(source, offset, pool, poolSize, length);
+            entryOffsets[entry] = poolSize;
+            entryLengths[entry] = length;
+            poolSize += length;
+            entryCount++;
+            return entry;
+        }
+
+        void index(int entry, int hash) {
+            final int mask = slots.length() - 1;
+            int slot = hash & mask;
+            while(slots.get(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.set(slot, entry + 1);
+        }
+
+        CharSequence idOf(int entry) {
+            return CharBuffer.wrap(pool, entryOffsets[entry], entryLengths[entry]);
+        }
+
+        int hashOf(int entry) {
+            return hash(idOf(entry));
+        }
+
+        boolean isBanned(int entry) {
+            return (banned.get(entry >>> 6) & (1L << entry)) != 0;
+        }
+
+        void setBanned(int entry, boolean value) {
+            final int word = entry >>> 6;
+            final long bit = 1L << entry;
+            long current;
+            do {
+                current = banned.get(word);
+            } while(!banned.compareAndSet(word, current, value ? current | bit : current & ~bit));
+        }
+    }
+}
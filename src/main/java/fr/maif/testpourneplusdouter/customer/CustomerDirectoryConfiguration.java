@@ -0,0 +1,37 @@
+package fr.maif.testpourneplusdouter.customer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Configuration
+public class CustomerDirectoryConfiguration {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerDirectoryConfiguration.class);
+
+    /**
+     * Loads the directory from {@code customer.directory.snapshot} when set, or from the demo customers otherwise.
+     */
+    @Bean
+    public CustomerDirectory customerDirectory(
+            @Value("${customer.directory.snapshot:}") String snapshot,
+            ObjectMapper mapper
+    ) throws IOException {
+        final CustomerDirectory directory = new CustomerDirectory();
+        if(snapshot.isBlank()) {
+            CustomerController.UNBANNED_CUSTOMERS.forEach(id -> directory.put(id, false));
+            CustomerController.BANNED_CUSTOMERS.forEach(id -> directory.put(id, true));
+        } else {
+            final long start = System.nanoTime();
+            directory.load(Path.of(snapshot), mapper);
+            LOGGER.info("Loaded {} customers from {} in {} ms", directory.size(), snapshot, (System.nanoTime() - start) / 1_000_000);
+        }
+        return directory;
+    }
+}
@@ -0,0 +1,61 @@
+package fr.maif.testpourneplusdouter.customer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import fr.maif.testpourneplusdouter.account.model.BloomFilter;
+import fr.maif.testpourneplusdouter.account.model.CustomerFilters;
+
+/**
+ * Builds Bloom filters of existing and banned customers, versioned with the directory, so that callers can
+ * short-circuit lookups of customers that definitely don't exist.
+ */
+@Component
+public class CustomerFilterPublisher {
+    private final CustomerDirectory directory;
+    private final double falsePositiveRate;
+    private volatile CustomerFilters filters;
+
+    public CustomerFilterPublisher(
+            CustomerDirectory directory,
+            @Value("${customer.filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.directory = directory;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public CustomerFilters current() {
+        final CustomerFilters current = filters;
+        if(current != null && current.version() == directory.version()) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    synchronized CustomerFilters rebuild() {
+        final long version = directory.version();
+        if(filters != null && filters.version() == version) {
+            return filters;
+        }
+
+        final AtomicLong bannedCount = new AtomicLong();
+        directory.forEach((id, banned) -> {
+            if(banned) {
+                bannedCount.incrementAndGet();
+            }
+        });
+        final BloomFilter customers = BloomFilter.create(directory.size(), falsePositiveRate);
+        final BloomFilter banned = BloomFilter.create(bannedCount.get(), falsePositiveRate);
+        directory.forEach((id, isBanned) -> {
+            customers.put(id);
+            if(isBanned) {
+                banned.put(id);
+            }
+        });
+
+        filters = new CustomerFilters(version, directory.size(), bannedCount.get(), customers, banned);
+        return filters;
+    }
+}
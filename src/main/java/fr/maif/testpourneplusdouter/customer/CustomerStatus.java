@@ -0,0 +1,5 @@
+package fr.maif.testpourneplusdouter.customer;
+
+public enum CustomerStatus {
+    UNKNOWN, ACTIVE, BANNED
+}
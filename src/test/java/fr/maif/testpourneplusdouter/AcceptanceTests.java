@@ -8,9 +8,15 @@ import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -18,28 +24,54 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 
 import fr.maif.testpourneplusdouter.account.AccountApplication;
 import fr.maif.testpourneplusdouter.account.api.AccountDTO;
+import fr.maif.testpourneplusdouter.account.api.BatchReadDTO;
+import fr.maif.testpourneplusdouter.account.api.BatchRunDTO;
+import fr.maif.testpourneplusdouter.account.api.ChangeFeedDTO;
+import fr.maif.testpourneplusdouter.account.api.MovementDTO;
+import fr.maif.testpourneplusdouter.account.api.ScheduledTransferDTO;
+import fr.maif.testpourneplusdouter.account.api.ScheduledTransfersDTO;
+import fr.maif.testpourneplusdouter.account.api.StatementDTO;
 import fr.maif.testpourneplusdouter.account.api.TransferResultDTO;
 import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.ScheduledTransfer;
+import fr.maif.testpourneplusdouter.account.service.AccountArchiver;
+import fr.maif.testpourneplusdouter.account.service.TransferScheduler;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
 import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
 
 @SpringBootTest(classes = AccountApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 class AcceptanceTests {
+	static final String STRIPED_ACCOUNT = "striped-account";
 
 	static EmbeddedPostgres postgres;
 	static AtomicBoolean databaseClosed = new AtomicBoolean(false);
@@ -54,17 +86,44 @@ class AcceptanceTests {
 
 	@Autowired
 	TestRestTemplate restTemplate;
+	@Autowired
+	AccountArchiver archiver;
+	@Autowired
+	InMemorySpanExporter spanExporter;
+	@Autowired
+	TransferScheduler scheduler;
 	static WireMockServer customerServer = new WireMockServer(new WireMockConfiguration().port(8888));
 
 
 	@DynamicPropertySource
 	static void databaseProperties(DynamicPropertyRegistry registry) {
 		registry.add("account.db.port", () -> postgres.getPort());
+		registry.add("account.striping.accounts", () -> STRIPED_ACCOUNT);
+	}
+
+	@TestConfiguration
+	static class TracingTestConfiguration {
+		@Bean
+		InMemorySpanExporter spanExporter() {
+			return InMemorySpanExporter.create();
+		}
+
+		@Bean
+		@Primary
+		OpenTelemetry testOpenTelemetry(InMemorySpanExporter spanExporter) {
+			return OpenTelemetrySdk.builder()
+					.setTracerProvider(SdkTracerProvider.builder()
+							.addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+							.build())
+					.setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+					.build();
+		}
 	}
 
 	@BeforeEach
 	public void each() {
 		customerServer.resetAll();
+		spanExporter.reset();
 	}
 
 	@BeforeAll
@@ -79,7 +138,7 @@ class AcceptanceTests {
 			postgres = EmbeddedPostgres.builder().start();
 			initDB();
 		}
-		try(final PreparedStatement statement = postgres.getDatabase("accountuser", "account").getConnection().prepareStatement("TRUNCATE account;")) {
+		try(final PreparedStatement statement = postgres.getDatabase("accountuser", "account").getConnection().prepareStatement("TRUNCATE account, account_archive, account_stripe;")) {
 			statement.execute();
 		}
 	}
@@ -203,6 +262,23 @@ class AcceptanceTests {
 		assertThat(response.getBody().error).isEqualTo(Error.NEGATIVE_BALANCE_AT_ACCOUNT_OPENING.message);
 	}
 
+	@Test
+	void customerShouldBeServedFromCacheWhileFresh() {
+		String customer = "cachedcustomer";
+		customerServer.stubFor(WireMock.get("/customers/" + customer)
+				.willReturn(ok().withHeader("Content-Type", "application/json")
+						.withHeader("Cache-Control", "private, max-age=60")
+						.withHeader("ETag", "\"active\"")
+						.withBody("{\"id\": \"" + customer + "\", \"banned\": false}")
+				));
+
+		create(customer, BigDecimal.ZERO);
+		final ResponseEntity<AccountDTO> response = create(customer, BigDecimal.ZERO);
+
+		assertThat(response.getBody().error).isEqualTo(Error.ACCOUNT_ALREADY_EXISTS.message);
+		customerServer.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/customers/" + customer)));
+	}
+
 	@Test
 	void depositShouldWorkCorrectly() {
 		String customer = "testcustomer";
@@ -290,6 +366,131 @@ class AcceptanceTests {
 		assertThat(result.error).isEqualTo(Error.ACCOUNT_NOT_FOUND.message);
 	}
 
+	@Test
+	void stripedAccountShouldBeCheckedOnItsAggregatedBalance() throws SQLException {
+		insertAccount(STRIPED_ACCOUNT, "stripedCustomer");
+
+		final ResponseEntity<AccountDTO> deposited = deposit(STRIPED_ACCOUNT, new BigDecimal("100"));
+		assertThat(deposited.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(deposited.getBody().balance).isEqualByComparingTo("100");
+		deposit(STRIPED_ACCOUNT, new BigDecimal("50"));
+		assertThat(read(STRIPED_ACCOUNT).getBody().balance).isEqualByComparingTo("150");
+
+		final ResponseEntity<AccountDTO> refused = withdraw(STRIPED_ACCOUNT, new BigDecimal("160"));
+		assertThat(refused.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(refused.getBody().error).isEqualTo(Error.INSUFFICIENT_BALANCE.message);
+
+		final ResponseEntity<AccountDTO> withdrawn = withdraw(STRIPED_ACCOUNT, new BigDecimal("150"));
+		assertThat(withdrawn.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(withdrawn.getBody().balance).isEqualByComparingTo("0");
+
+		final ResponseEntity<AccountDTO> closed = restTemplate.exchange("/accounts/" + STRIPED_ACCOUNT, HttpMethod.DELETE, null, AccountDTO.class);
+		assertThat(closed.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(closed.getBody().closed).isTrue();
+		assertThat(deposit(STRIPED_ACCOUNT, BigDecimal.TEN).getBody().error).isEqualTo(Error.ACCOUNT_CLOSED.message);
+		assertThat(read(STRIPED_ACCOUNT).getBody().balance).isEqualByComparingTo("0");
+	}
+
+	@Test
+	void transferShouldMoveMoneyToAndFromAStripedAccount() throws SQLException {
+		String customer = "testcustomer";
+		allowCustomer(customer);
+		insertAccount(STRIPED_ACCOUNT, "stripedCustomer");
+
+		String accountId = create(customer, new BigDecimal("100")).getBody().id;
+		final ResponseEntity<TransferResultDTO> credited = transfer(accountId, STRIPED_ACCOUNT, new BigDecimal("80"));
+		assertThat(credited.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(credited.getBody().source.balance).isEqualByComparingTo("20");
+		assertThat(credited.getBody().target.balance).isEqualByComparingTo("80");
+
+		final ResponseEntity<TransferResultDTO> refused = transfer(STRIPED_ACCOUNT, accountId, new BigDecimal("90"));
+		assertThat(refused.getBody().error).isEqualTo(Error.INSUFFICIENT_BALANCE.message);
+
+		final ResponseEntity<TransferResultDTO> debited = transfer(STRIPED_ACCOUNT, accountId, new BigDecimal("30"));
+		assertThat(debited.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(debited.getBody().source.balance).isEqualByComparingTo("50");
+		assertThat(debited.getBody().target.balance).isEqualByComparingTo("50");
+		assertThat(read(STRIPED_ACCOUNT).getBody().balance).isEqualByComparingTo("50");
+		assertThat(read(accountId).getBody().balance).isEqualByComparingTo("50");
+	}
+
+	@Test
+	void openAccountShouldContinueTheCallerTrace() throws InterruptedException {
+		String customer = "tracedCustomer";
+		allowCustomer(customer);
+		String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+		String body = """
+			{
+				"customer": \"""" + customer + "\"," + """
+   				"balance": 10
+			}
+		""";
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.put("Content-type", Collections.singletonList("application/json"));
+		headers.add("traceparent", "00-" + traceId + "-00f067aa0ba902b7-01");
+		final ResponseEntity<AccountDTO> response = restTemplate.exchange("/accounts", HttpMethod.POST, new HttpEntity<>(body, headers), AccountDTO.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		customerServer.verify(WireMock.getRequestedFor(WireMock.urlEqualTo("/customers/" + customer))
+				.withHeader("traceparent", WireMock.matching("00-" + traceId + "-[0-9a-f]{16}-01")));
+
+		// the server span of an asynchronous request ends once the response is completed
+		List<SpanData> spans = spanExporter.getFinishedSpanItems();
+		for(int attempt = 0; attempt < 50 && spans.stream().noneMatch(span -> span.getKind() == SpanKind.SERVER); attempt++) {
+			Thread.sleep(100);
+			spans = spanExporter.getFinishedSpanItems();
+		}
+		// background jobs trace their own polls, only the spans of the request are checked
+		final List<String> requestTraceSpans = spans.stream()
+				.filter(span -> span.getTraceId().equals(traceId))
+				.map(SpanData::getName)
+				.collect(Collectors.toList());
+		assertThat(requestTraceSpans.contains("POST /accounts")).isTrue();
+		assertThat(requestTraceSpans.contains("GET /customers/{id}")).isTrue();
+		assertThat(requestTraceSpans.contains("account.searchAccountForCustomer")).isTrue();
+		assertThat(requestTraceSpans.contains("account.save")).isTrue();
+	}
+
+	@Test
+	void dueScheduledTransferShouldBeExecutedOnNextTick() throws Exception {
+		String fromCustomer = "fromCustomer";
+		String toCustomer = "toCustomer";
+		allowCustomer(fromCustomer);
+		allowCustomer(toCustomer);
+
+		String fromId = create(fromCustomer, new BigDecimal("100")).getBody().id;
+		String toId = create(toCustomer, new BigDecimal("0")).getBody().id;
+		String body = """
+			{
+				"target": \"""" + toId + "\"," + """
+				"amount": 30,
+				"executeAt": \"""" + Instant.now().minus(1, ChronoUnit.MINUTES) + "\"" + """
+			}
+		""";
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.put("Content-type", Collections.singletonList("application/json"));
+		final ResponseEntity<ScheduledTransferDTO> scheduled = restTemplate.exchange("/accounts/" + fromId + "/_scheduled-transfers", HttpMethod.POST, new HttpEntity<>(body, headers), ScheduledTransferDTO.class);
+		assertThat(scheduled.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(scheduled.getBody().status).isEqualTo(ScheduledTransfer.Status.SCHEDULED);
+
+		scheduler.tickNow().get();
+		ScheduledTransferDTO transfer = scheduled.getBody();
+		for(int attempt = 0; attempt < 50 && transfer.status != ScheduledTransfer.Status.DONE; attempt++) {
+			Thread.sleep(100);
+			transfer = restTemplate.getForEntity("/accounts/" + fromId + "/_scheduled-transfers", ScheduledTransfersDTO.class)
+					.getBody().transfers.get(0);
+		}
+
+		assertThat(transfer.id).isEqualTo(scheduled.getBody().id);
+		assertThat(transfer.status).isEqualTo(ScheduledTransfer.Status.DONE);
+		assertThat(transfer.executions).isEqualTo(1);
+		assertThat(transfer.lastError).isNull();
+		assertThat(read(fromId).getBody().balance).isEqualByComparingTo("70");
+		assertThat(read(toId).getBody().balance).isEqualByComparingTo("30");
+	}
+
 	@Test
 	void readShouldWorkCorrectly() {
 		String fromCustomer = "fromCustomer";
@@ -306,6 +507,189 @@ class AcceptanceTests {
 		assertThat(account.id).isEqualTo(accountId);
 	}
 
+	@Test
+	void readShouldReturnNotModifiedUntilAccountChanges() {
+		String customer = "etagCustomer";
+		allowCustomer(customer);
+
+		String accountId = create(customer, new BigDecimal("80")).getBody().id;
+		final String etag = read(accountId).getHeaders().getETag();
+		assertThat(etag).isNotBlank();
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(etag);
+		final ResponseEntity<AccountDTO> unchanged = restTemplate.exchange("/accounts/" + accountId, HttpMethod.GET, new HttpEntity<>(headers), AccountDTO.class);
+		assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+		deposit(accountId, new BigDecimal("20"));
+		final ResponseEntity<AccountDTO> changed = restTemplate.exchange("/accounts/" + accountId, HttpMethod.GET, new HttpEntity<>(headers), AccountDTO.class);
+		assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(changed.getBody().balance).isEqualByComparingTo("100");
+		assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+	}
+
+	@Test
+	void readAllShouldReturnOneResultPerRequestedId() {
+		String firstCustomer = "firstCustomer";
+		String secondCustomer = "secondCustomer";
+		allowCustomer(firstCustomer);
+		allowCustomer(secondCustomer);
+
+		String firstId = create(firstCustomer, new BigDecimal("80")).getBody().id;
+		String secondId = create(secondCustomer, new BigDecimal("20")).getBody().id;
+		String body = "{\"ids\": [\"" + secondId + "\", \"unknown\", \"" + firstId + "\"]}";
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.put("Content-type", Collections.singletonList("application/json"));
+		final ResponseEntity<BatchReadDTO> response = restTemplate.exchange("/accounts/_read", HttpMethod.POST, new HttpEntity<>(body, headers), BatchReadDTO.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		final List<AccountDTO> accounts = response.getBody().accounts;
+		assertThat(accounts.size()).isEqualTo(3);
+		assertThat(accounts.get(0).id).isEqualTo(secondId);
+		assertThat(accounts.get(0).balance).isEqualByComparingTo("20");
+		assertThat(accounts.get(1).id).isEqualTo("unknown");
+		assertThat(accounts.get(1).error).isEqualTo(Error.ACCOUNT_NOT_FOUND.message);
+		assertThat(accounts.get(2).id).isEqualTo(firstId);
+		assertThat(accounts.get(2).balance).isEqualByComparingTo("80");
+	}
+
+	@Test
+	void batchShouldApplyInterestToEveryOpenAccount() throws InterruptedException {
+		String firstCustomer = "firstCustomer";
+		String secondCustomer = "secondCustomer";
+		allowCustomer(firstCustomer);
+		allowCustomer(secondCustomer);
+
+		String firstId = create(firstCustomer, new BigDecimal("100")).getBody().id;
+		String secondId = create(secondCustomer, new BigDecimal("0")).getBody().id;
+		String body = """
+			{
+				"kind": "INTEREST",
+				"amount": 0.01
+			}
+		""";
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.put("Content-type", Collections.singletonList("application/json"));
+		final ResponseEntity<BatchRunDTO> started = restTemplate.exchange("/accounts/_batches/interest-test", HttpMethod.POST, new HttpEntity<>(body, headers), BatchRunDTO.class);
+		assertThat(started.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+		BatchRunDTO run = started.getBody();
+		for(int attempt = 0; attempt < 100 && run.finishedAt == null; attempt++) {
+			Thread.sleep(100);
+			run = restTemplate.getForEntity("/accounts/_batches/interest-test", BatchRunDTO.class).getBody();
+		}
+
+		assertThat(run.finishedAt).isNotNull();
+		assertThat(run.processed).isEqualTo(2);
+		assertThat(read(firstId).getBody().balance).isEqualByComparingTo("101");
+		assertThat(read(secondId).getBody().balance).isEqualByComparingTo("0");
+	}
+
+	@Test
+	void movementsShouldListBalanceChangesInTimeOrder() {
+		String customer = "statementCustomer";
+		allowCustomer(customer);
+
+		String accountId = create(customer, new BigDecimal("100")).getBody().id;
+		deposit(accountId, new BigDecimal("10"));
+		withdraw(accountId, new BigDecimal("30"));
+
+		Instant now = Instant.now();
+		String url = "/accounts/" + accountId + "/movements?from=" + now.minus(1, ChronoUnit.HOURS) + "&to=" + now.plus(1, ChronoUnit.HOURS);
+		final ResponseEntity<StatementDTO> firstPage = restTemplate.getForEntity(url + "&limit=2", StatementDTO.class);
+		assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(firstPage.getBody().movements.size()).isEqualTo(2);
+		assertThat(firstPage.getBody().next).isNotBlank();
+
+		final ResponseEntity<StatementDTO> secondPage = restTemplate.getForEntity(url + "&limit=2&after=" + firstPage.getBody().next, StatementDTO.class);
+		assertThat(secondPage.getBody().movements.size()).isEqualTo(1);
+		assertThat(secondPage.getBody().next).isNull();
+
+		final List<MovementDTO> movements = Stream.concat(
+				firstPage.getBody().movements.stream(),
+				secondPage.getBody().movements.stream()
+		).collect(Collectors.toList());
+		assertThat(movements.get(0).amount).isEqualByComparingTo("100");
+		assertThat(movements.get(1).amount).isEqualByComparingTo("10");
+		assertThat(movements.get(2).amount).isEqualByComparingTo("-30");
+		assertThat(movements.get(2).balance).isEqualByComparingTo("80");
+	}
+
+	@Test
+	void closedAccountsShouldStillBeReadableOnceArchived() throws SQLException {
+		String customer = "archivedCustomer";
+		allowCustomer(customer);
+
+		String accountId = create(customer, BigDecimal.ZERO).getBody().id;
+		final ResponseEntity<AccountDTO> closed = restTemplate.exchange("/accounts/" + accountId, HttpMethod.DELETE, null, AccountDTO.class);
+		assertThat(closed.getStatusCode()).isEqualTo(HttpStatus.OK);
+		try(final PreparedStatement statement = postgres.getDatabase("accountuser", "account").getConnection().prepareStatement("""
+			UPDATE account SET closed_at = now() - interval '400 days' WHERE id = ?
+		""")) {
+			statement.setString(1, accountId);
+			statement.execute();
+		}
+
+		assertThat(archiver.archive()).isEqualTo(1);
+
+		final ResponseEntity<AccountDTO> archived = read(accountId);
+		assertThat(archived.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(archived.getBody().closed).isTrue();
+		assertThat(deposit(accountId, BigDecimal.TEN).getBody().error).isEqualTo(Error.ACCOUNT_CLOSED.message);
+		assertThat(create(customer, BigDecimal.ZERO).getBody().error).isEqualTo(Error.ACCOUNT_ALREADY_EXISTS.message);
+	}
+
+	@Test
+	void readShouldSupportCbor() throws IOException {
+		String fromCustomer = "fromCustomer";
+		allowCustomer(fromCustomer);
+
+		String accountId = create(fromCustomer, new BigDecimal("80")).getBody().id;
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Collections.singletonList(MediaType.APPLICATION_CBOR));
+		final ResponseEntity<byte[]> result = restTemplate.exchange("/accounts/" + accountId, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+
+		assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(result.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+		final AccountDTO account = new ObjectMapper(new CBORFactory()).readValue(result.getBody(), AccountDTO.class);
+		assertThat(account.balance).isEqualByComparingTo("80");
+		assertThat(account.id).isEqualTo(accountId);
+	}
+
+
+	@Test
+	void changeFeedShouldContainAccountMutations() {
+		String customer = "testcustomer";
+		allowCustomer(customer);
+
+		// the outbox isn't truncated between tests, the feed is read from its current head
+		String head = "0";
+		ChangeFeedDTO page;
+		do {
+			page = restTemplate.getForEntity("/accounts/_changes?limit=1000&after=" + head, ChangeFeedDTO.class).getBody();
+			head = page.next;
+		} while(!page.changes.isEmpty());
+
+		String accountId = create(customer, new BigDecimal("100")).getBody().id;
+		deposit(accountId, new BigDecimal("10"));
+
+		final List<BigDecimal> balances = new ArrayList<>();
+		String after = head;
+		for(int attempt = 0; attempt < 10 && balances.size() < 2; attempt++) {
+			final ResponseEntity<ChangeFeedDTO> response = restTemplate.getForEntity("/accounts/_changes?limit=100&waitMs=2000&after=" + after, ChangeFeedDTO.class);
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+			response.getBody().changes.stream()
+					.filter(change -> change.account.id.equals(accountId))
+					.forEach(change -> balances.add(change.account.balance));
+			assertThat(response.getBody().next).isNotBlank();
+			after = response.getBody().next;
+		}
+		assertThat(balances.size()).isEqualTo(2);
+		assertThat(balances.get(0)).isEqualByComparingTo("100");
+		assertThat(balances.get(1)).isEqualByComparingTo("110");
+	}
 
 	@Test
 	@DirtiesContext
@@ -399,6 +783,19 @@ class AcceptanceTests {
 		return restTemplate.exchange("/accounts/" + id, HttpMethod.GET, entity, AccountDTO.class);
 	}
 
+	/**
+	 * Account ids are generated at opening, accounts that need a known id, like striped ones, are inserted directly.
+	 */
+	void insertAccount(String accountId, String customer) throws SQLException {
+		try(final PreparedStatement statement = postgres.getDatabase("accountuser", "account").getConnection().prepareStatement("""
+			INSERT INTO account(id, customer, balance, closed) VALUES (?, ?, 0::money, false)
+		""")) {
+			statement.setString(1, accountId);
+			statement.setString(2, customer);
+			statement.execute();
+		}
+	}
+
 	void allowCustomer(String customer) {
 		customerServer.stubFor(WireMock.get("/customers/" + customer)
 			.willReturn(ok().withHeader("Content-Type", "application/json")
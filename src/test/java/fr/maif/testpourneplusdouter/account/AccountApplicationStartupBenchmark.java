@@ -0,0 +1,79 @@
+package fr.maif.testpourneplusdouter.account;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time until "Started AccountApplication" is logged, over several JVM launches, with and without lazy
+ * initialization and AppCDS. The database is deliberately unreachable: startup must not depend on it.
+ *
+ * Run from the test classpath, e.g. from the IDE, with arguments {@code [launches] [archive path]}.
+ * The AppCDS archive is recorded on the first launch when it doesn't exist.
+ */
+public class AccountApplicationStartupBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int launches = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final Path archive = Path.of(args.length > 1 ? args[1] : "target/account-app.jsa");
+
+        if(!Files.exists(archive)) {
+            launch(List.of("-XX:ArchiveClassesAtExit=" + archive));
+        }
+
+        report("default", measure(launches, List.of()));
+        report("lazy initialization", measure(launches, List.of("-Dspring.profiles.active=fast-startup")));
+        report("AppCDS", measure(launches, List.of("-XX:SharedArchiveFile=" + archive)));
+        report("AppCDS + lazy initialization", measure(launches, List.of("-XX:SharedArchiveFile=" + archive, "-Dspring.profiles.active=fast-startup")));
+    }
+
+    static long[] measure(int launches, List<String> jvmArguments) throws IOException, InterruptedException {
+        final long[] durations = new long[launches];
+        for(int i = 0; i < launches; i++) {
+            durations[i] = launch(jvmArguments);
+        }
+        return durations;
+    }
+
+    static long launch(List<String> jvmArguments) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArguments);
+        command.addAll(List.of(
+                "-cp", System.getProperty("java.class.path"),
+                AccountApplication.class.getName(),
+                "--server.port=0",
+                "--account.db.port=1"
+        ));
+
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try(final BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.contains("Started AccountApplication")) {
+                    final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    process.destroy();
+                    process.waitFor(30, TimeUnit.SECONDS);
+                    return elapsed;
+                }
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+        throw new IllegalStateException("AccountApplication did not start");
+    }
+
+    static void report(String name, long[] durations) {
+        final long[] sorted = durations.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-30s median %5d ms, min %5d ms, max %5d ms%n", name, sorted[sorted.length / 2], sorted[0], sorted[sorted.length - 1]);
+    }
+}
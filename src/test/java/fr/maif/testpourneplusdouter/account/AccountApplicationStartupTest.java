@@ -0,0 +1,30 @@
+package fr.maif.testpourneplusdouter.account;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest(
+		classes = AccountApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "account.db.port=1"
+)
+class AccountApplicationStartupTest {
+
+	@Autowired
+	TestRestTemplate restTemplate;
+
+	@Test
+	void applicationShouldStartButNotBeReadyWhileDatabaseIsUnreachable() {
+		final ResponseEntity<String> liveness = restTemplate.getForEntity("/actuator/health/liveness", String.class);
+		final ResponseEntity<String> readiness = restTemplate.getForEntity("/actuator/health/readiness", String.class);
+
+		assertThat(liveness.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(readiness.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+	}
+}
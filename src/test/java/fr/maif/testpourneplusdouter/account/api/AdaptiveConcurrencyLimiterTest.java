@@ -0,0 +1,37 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+    @Test
+    public void acquireShouldFailWhenLimitIsReached() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(limiter.acquire()).isTrue();
+        assertThat(limiter.acquire()).isTrue();
+        assertThat(limiter.acquire()).isFalse();
+
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(limiter.acquire()).isTrue();
+    }
+
+    @Test
+    public void limitShouldDecreaseWhenLatencyRises() {
+        final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 0, TimeUnit.MILLISECONDS);
+        for(int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(5), 50);
+        }
+        final int steadyLimit = limiter.limit();
+
+        for(int i = 0; i < 50; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(100), 50);
+        }
+
+        assertThat(limiter.limit()).isLessThan(steadyLimit);
+        assertThat(limiter.limit()).isGreaterThanOrEqualTo(5);
+    }
+}
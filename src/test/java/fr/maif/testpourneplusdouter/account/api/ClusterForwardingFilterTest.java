@@ -0,0 +1,82 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+
+import fr.maif.testpourneplusdouter.account.service.ClusterMembership;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ClusterForwardingFilterTest {
+    private static final String SELF = "http://localhost:1";
+
+    private WireMockServer owner;
+    private ClusterMembership membership;
+    private ClusterForwardingFilter filter;
+
+    @BeforeEach
+    public void startOwner() throws Exception {
+        owner = new WireMockServer(WireMockConfiguration.options().dynamicPort());
+        owner.start();
+        owner.stubFor(WireMock.any(WireMock.anyUrl()).willReturn(WireMock.okJson("{}")));
+        membership = new ClusterMembership(true, SELF, SELF + "," + owner.baseUrl(), 128);
+        filter = new ClusterForwardingFilter(membership, Duration.ofSeconds(2), new SimpleMeterRegistry(), new ObjectMapper());
+    }
+
+    @AfterEach
+    public void stopOwner() {
+        owner.stop();
+    }
+
+    @Test
+    public void forwardedRequestShouldCarryTheAddressOfAnAnonymousCaller() throws Exception {
+        final MockHttpServletRequest request = depositOn(accountOwnedByOtherNode());
+        request.setRemoteAddr("203.0.113.7");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        owner.verify(WireMock.postRequestedFor(WireMock.anyUrl())
+                .withHeader(AccountController.CALLER_HEADER, WireMock.equalTo("203.0.113.7"))
+                .withHeader(ClusterForwardingFilter.FORWARDED_HEADER, WireMock.equalTo(SELF)));
+    }
+
+    @Test
+    public void forwardedRequestShouldKeepTheCallerIdOfAnIntegrator() throws Exception {
+        final MockHttpServletRequest request = depositOn(accountOwnedByOtherNode());
+        request.setRemoteAddr("203.0.113.7");
+        request.addHeader(AccountController.CALLER_HEADER, "integrator");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        owner.verify(WireMock.postRequestedFor(WireMock.anyUrl())
+                .withHeader(AccountController.CALLER_HEADER, WireMock.equalTo("integrator")));
+    }
+
+    private String accountOwnedByOtherNode() {
+        String accountId;
+        do {
+            accountId = UUID.randomUUID().toString();
+        } while(membership.isOwner(accountId));
+        return accountId;
+    }
+
+    private static MockHttpServletRequest depositOn(String accountId) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/accounts/" + accountId + "/_deposit");
+        request.setContentType("application/json");
+        request.setContent("{\"amount\": 10}".getBytes());
+        return request;
+    }
+}
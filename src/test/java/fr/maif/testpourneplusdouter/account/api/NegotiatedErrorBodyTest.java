@@ -0,0 +1,46 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+
+public class NegotiatedErrorBodyTest {
+    private final NegotiatedErrorBody body;
+
+    public NegotiatedErrorBodyTest() throws IOException {
+        this.body = new NegotiatedErrorBody(Error.OVERLOADED, new ObjectMapper());
+    }
+
+    @Test
+    public void jsonShouldBeTheDefault() {
+        assertThat(body.select(null)).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(body.select("*/*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(body.select("text/html")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(body.select("not a media type")).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    public void binaryFormatsShouldBePickedFromAccept() {
+        assertThat(body.select("application/cbor")).isEqualTo(MediaType.APPLICATION_CBOR);
+        assertThat(body.select("application/x-jackson-smile")).isEqualTo(NegotiatedErrorBody.APPLICATION_SMILE);
+        assertThat(body.select("application/json;q=0.5, application/cbor")).isEqualTo(MediaType.APPLICATION_CBOR);
+    }
+
+    @Test
+    public void cborBodyShouldBeReadableByACborClient() throws IOException {
+        final Map<String, String> decoded = new ObjectMapper(new CBORFactory())
+                .readValue(body.body(MediaType.APPLICATION_CBOR), new TypeReference<Map<String, String>>() { });
+
+        assertThat(decoded.get("error")).isEqualTo(Error.OVERLOADED.message);
+    }
+}
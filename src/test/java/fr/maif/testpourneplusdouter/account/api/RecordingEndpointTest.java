@@ -0,0 +1,28 @@
+package fr.maif.testpourneplusdouter.account.api;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+
+public class RecordingEndpointTest {
+    @Test
+    public void dumpShouldBeDeletedOnceSent() throws IOException {
+        final Path file = Files.createTempFile("account-test-", ".jfr");
+        Files.writeString(file, "recording");
+
+        final Resource resource = RecordingEndpoint.deletedOnceSent(file);
+        assertThat(resource.contentLength()).isEqualTo(9L);
+        try(final InputStream stream = resource.getInputStream()) {
+            assertThat(new String(stream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("recording");
+        }
+
+        assertThat(Files.exists(file)).isFalse();
+    }
+}
@@ -0,0 +1,34 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class BalanceAdjustmentTest {
+    @Test
+    public void interestShouldBeRoundedToCents() {
+        final BalanceAdjustment interest = new BalanceAdjustment(BalanceAdjustment.Kind.INTEREST, new BigDecimal("0.0025"));
+
+        assertThat(interest.delta(new BigDecimal("1234.56"))).isEqualByComparingTo("3.09");
+        assertThat(interest.delta(new BigDecimal("1.00"))).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void feeShouldNeverMakeTheBalanceNegative() {
+        final BalanceAdjustment fee = new BalanceAdjustment(BalanceAdjustment.Kind.FEE, new BigDecimal("2.50"));
+
+        assertThat(fee.delta(new BigDecimal("100"))).isEqualByComparingTo("-2.50");
+        assertThat(fee.delta(new BigDecimal("1.20"))).isEqualByComparingTo("-1.20");
+    }
+
+    @Test
+    public void emptyAccountsShouldBeLeftUntouched() {
+        final BalanceAdjustment interest = new BalanceAdjustment(BalanceAdjustment.Kind.INTEREST, new BigDecimal("0.01"));
+        final BalanceAdjustment fee = new BalanceAdjustment(BalanceAdjustment.Kind.FEE, new BigDecimal("2"));
+
+        assertThat(interest.delta(BigDecimal.ZERO).signum()).isEqualTo(0);
+        assertThat(fee.delta(BigDecimal.ZERO).signum()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,37 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest {
+    @Test
+    public void insertedIdsShouldAlwaysBeFoundIgnoringCase() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for(int i = 0; i < 10_000; i++) {
+            filter.put("customer-" + i);
+        }
+
+        for(int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("CUSTOMER-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    public void falsePositiveRateShouldStayCloseToTheConfiguredOne() {
+        final BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for(int i = 0; i < 10_000; i++) {
+            filter.put("customer-" + i);
+        }
+
+        int falsePositives = 0;
+        for(int i = 0; i < 100_000; i++) {
+            if(filter.mightContain("unknown-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000d).isLessThan(0.02);
+        assertThat(filter.expectedFalsePositiveRate(10_000)).isLessThan(0.011);
+    }
+}
@@ -0,0 +1,38 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class KeyRangeTest {
+    @Test
+    public void hexPrefixesShouldBeContiguousAndUnbounded() {
+        final List<KeyRange> ranges = KeyRange.hexPrefixes(2);
+
+        assertThat(ranges.size()).isEqualTo(256);
+        assertThat(ranges.get(0).lower()).isNull();
+        assertThat(ranges.get(0).upper()).isEqualTo("01");
+        assertThat(ranges.get(255).lower()).isEqualTo("ff");
+        assertThat(ranges.get(255).upper()).isNull();
+        for(int i = 1; i < ranges.size(); i++) {
+            assertThat(ranges.get(i).lower()).isEqualTo(ranges.get(i - 1).upper());
+            assertThat(ranges.get(i).index()).isEqualTo(i);
+        }
+    }
+
+    @Test
+    public void everyUuidShouldFallInExactlyOneRange() {
+        final List<KeyRange> ranges = KeyRange.hexPrefixes(1);
+        for(int i = 0; i < 1000; i++) {
+            final String id = UUID.randomUUID().toString();
+            final long matching = ranges.stream()
+                    .filter(range -> (range.lower() == null || id.compareTo(range.lower()) >= 0)
+                            && (range.upper() == null || id.compareTo(range.upper()) < 0))
+                    .count();
+            assertThat(matching).isEqualTo(1);
+        }
+    }
+}
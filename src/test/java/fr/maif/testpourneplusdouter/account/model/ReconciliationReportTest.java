@@ -0,0 +1,58 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ReconciliationReportTest {
+    @Test
+    public void identicalSnapshotsShouldHaveNoMismatch() {
+        final List<KeyRange> ranges = KeyRange.hexPrefixes(1);
+        final List<RangeChecksum> checksums = checksums(ranges);
+
+        final ReconciliationReport report = ReconciliationReport.compare("a", checksums, "b", checksums(ranges), ranges);
+
+        assertThat(report.accounts()).isEqualTo(16L);
+        assertThat(report.total()).isEqualTo(new BigDecimal("160.00"));
+        assertThat(report.comparedTotal()).isEqualTo(new BigDecimal("160.00"));
+        assertThat(report.mismatchingRanges().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void compareShouldReportRangesWhoseDigestDiffers() {
+        final List<KeyRange> ranges = KeyRange.hexPrefixes(1);
+        final List<RangeChecksum> other = checksums(ranges);
+        other.set(5, new RangeChecksum(5, 1, new BigDecimal("10.00"), digest("drift")));
+
+        final ReconciliationReport report = ReconciliationReport.compare("a", checksums(ranges), "b", other, ranges);
+
+        assertThat(report.root()).isNotEqualTo(RangeChecksum.merkleRoot(other));
+        assertThat(report.mismatchingRanges().size()).isEqualTo(1);
+        assertThat(report.mismatchingRanges().get(0)).isEqualTo(ranges.get(5));
+    }
+
+    @Test
+    public void merkleRootShouldDependOnLeafOrder() {
+        final List<RangeChecksum> checksums = checksums(KeyRange.hexPrefixes(1)).subList(0, 3);
+        final List<RangeChecksum> swapped = List.of(checksums.get(1), checksums.get(0), checksums.get(2));
+
+        assertThat(RangeChecksum.merkleRoot(checksums)).hasSize(64);
+        assertThat(RangeChecksum.merkleRoot(checksums)).isNotEqualTo(RangeChecksum.merkleRoot(swapped));
+    }
+
+    private static List<RangeChecksum> checksums(List<KeyRange> ranges) {
+        final List<RangeChecksum> checksums = new ArrayList<>();
+        for(KeyRange range : ranges) {
+            checksums.add(new RangeChecksum(range.index(), 1, new BigDecimal("10.00"), digest("range-" + range.index())));
+        }
+        return checksums;
+    }
+
+    private static String digest(String content) {
+        return RangeChecksum.toHex(RangeChecksum.sha256().digest(RangeChecksum.utf8(content)));
+    }
+}
@@ -0,0 +1,56 @@
+package fr.maif.testpourneplusdouter.account.model;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.Period;
+
+import org.junit.jupiter.api.Test;
+
+public class ScheduledTransferTest {
+    @Test
+    public void monthlyOrderStartedOnThe31stShouldComeBackToThe31stAfterFebruary() {
+        final Instant start = Instant.parse("2021-01-31T10:00:00Z");
+
+        assertThat(occurrence(start, Period.ofMonths(1), 0).nextExecution()).isEqualTo(Instant.parse("2021-02-28T10:00:00Z"));
+        assertThat(occurrence(start, Period.ofMonths(1), 1).nextExecution()).isEqualTo(Instant.parse("2021-03-31T10:00:00Z"));
+        assertThat(occurrence(start, Period.ofMonths(1), 2).nextExecution()).isEqualTo(Instant.parse("2021-04-30T10:00:00Z"));
+        assertThat(occurrence(start, Period.ofMonths(1), 3).nextExecution()).isEqualTo(Instant.parse("2021-05-31T10:00:00Z"));
+    }
+
+    @Test
+    public void monthlyOrderShouldUseThe29thOfFebruaryInLeapYears() {
+        final Instant start = Instant.parse("2024-01-31T00:00:00Z");
+
+        assertThat(occurrence(start, Period.ofMonths(1), 0).nextExecution()).isEqualTo(Instant.parse("2024-02-29T00:00:00Z"));
+        assertThat(occurrence(start, Period.ofMonths(1), 1).nextExecution()).isEqualTo(Instant.parse("2024-03-31T00:00:00Z"));
+    }
+
+    @Test
+    public void yearlyOrderStartedOnThe29thOfFebruaryShouldComeBackToItInLeapYears() {
+        final Instant start = Instant.parse("2024-02-29T08:00:00Z");
+
+        assertThat(occurrence(start, Period.ofYears(1), 0).nextExecution()).isEqualTo(Instant.parse("2025-02-28T08:00:00Z"));
+        assertThat(occurrence(start, Period.ofYears(1), 3).nextExecution()).isEqualTo(Instant.parse("2028-02-29T08:00:00Z"));
+    }
+
+    /**
+     * The occurrence number {@code executions} of a standing order, its due date doesn't matter to
+     * {@link ScheduledTransfer#nextExecution()}.
+     */
+    private static ScheduledTransfer occurrence(Instant start, Period recurrence, int executions) {
+        return new ScheduledTransfer(
+                "transfer",
+                "source",
+                "target",
+                BigDecimal.TEN,
+                start,
+                recurrence,
+                start,
+                ScheduledTransfer.Status.SCHEDULED,
+                executions,
+                null
+        );
+    }
+}
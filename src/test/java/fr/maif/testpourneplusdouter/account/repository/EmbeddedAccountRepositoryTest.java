@@ -0,0 +1,138 @@
+package fr.maif.testpourneplusdouter.account.repository;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.model.TransferResult;
+import io.vavr.control.Either;
+
+public class EmbeddedAccountRepositoryTest {
+    @TempDir
+    Path directory;
+
+    EmbeddedAccountRepository open(DataSize compactAbove) throws IOException {
+        return new EmbeddedAccountRepository(directory, DataSize.ofKilobytes(4), compactAbove, true, event -> { });
+    }
+
+    EmbeddedAccountRepository open() throws IOException {
+        return open(DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    public void accountsShouldBeReplayedAfterRestart() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        repository.save(new Account("a", "customer-a", new BigDecimal("10"), false));
+        repository.save(new Account("b", "customer-b", new BigDecimal("5.5"), false));
+        repository.save(new Account("a", "customer-a", new BigDecimal("12.25"), true));
+        repository.close();
+
+        final EmbeddedAccountRepository reopened = open();
+        assertThat(reopened.read("a").get()).isEqualTo(new Account("a", "customer-a", new BigDecimal("12.25"), true, 1));
+        assertThat(reopened.read("b").get().balance()).isEqualByComparingTo("5.5");
+        assertThat(reopened.searchAccountForCustomer("customer-b").get().get().id()).isEqualTo("b");
+        assertThat(reopened.read("c").getLeft()).isEqualTo(Error.ACCOUNT_NOT_FOUND);
+        reopened.close();
+    }
+
+    @Test
+    public void journalShouldSpanSeveralRegions() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        for(int i = 0; i < 500; i++) {
+            repository.save(new Account("account-" + i, "customer-" + i, new BigDecimal(i), false));
+        }
+        repository.close();
+
+        final EmbeddedAccountRepository reopened = open();
+        for(int i = 0; i < 500; i++) {
+            assertThat(reopened.read("account-" + i).get().balance()).isEqualByComparingTo(new BigDecimal(i));
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void transferShouldSaveBothAccountsOrNone() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        repository.save(new Account("from", "customer-from", new BigDecimal("30"), false));
+        repository.save(new Account("to", "customer-to", new BigDecimal("0"), false));
+
+        final Either<Error, TransferResult> transferred = repository.transfer("from", "to", (source, target) ->
+                source.withdraw(new BigDecimal("10")).flatMap(newSource ->
+                        target.deposit(new BigDecimal("10")).map(newTarget -> new TransferResult(newSource, newTarget)))
+        );
+        final Either<Error, TransferResult> refused = repository.transfer("from", "to", (source, target) ->
+                Either.left(Error.INSUFFICIENT_BALANCE)
+        );
+
+        assertThat(transferred.isRight()).isTrue();
+        assertThat(refused.getLeft()).isEqualTo(Error.INSUFFICIENT_BALANCE);
+        assertThat(repository.read("from").get().balance()).isEqualByComparingTo("20");
+        assertThat(repository.read("to").get().balance()).isEqualByComparingTo("10");
+        repository.close();
+    }
+
+    @Test
+    public void tornFrameShouldBeIgnoredOnReplay() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        repository.save(new Account("a", "customer-a", new BigDecimal("10"), false));
+        repository.save(new Account("a", "customer-a", new BigDecimal("20"), false));
+        repository.close();
+
+        try(final RandomAccessFile file = new RandomAccessFile(directory.resolve("accounts.journal").toFile(), "rw")) {
+            final long secondFramePayload = 8 + AccountJournal.encode(
+                    List.of(new Account("a", "customer-a", new BigDecimal("10"), false))
+            ).length + 8;
+            file.seek(secondFramePayload + 2);
+            file.write('x');
+        }
+
+        final EmbeddedAccountRepository reopened = open();
+        assertThat(reopened.read("a").get().balance()).isEqualByComparingTo("10");
+        reopened.save(new Account("a", "customer-a", new BigDecimal("30"), false));
+        reopened.close();
+
+        final EmbeddedAccountRepository recovered = open();
+        assertThat(recovered.read("a").get().balance()).isEqualByComparingTo("30");
+        recovered.close();
+    }
+
+    @Test
+    public void journalShouldBeCompactedOnStartup() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        for(int i = 0; i < 200; i++) {
+            repository.save(new Account("a", "customer-a", new BigDecimal(i), false, Math.max(0, i - 1)));
+        }
+        repository.close();
+
+        final EmbeddedAccountRepository compacted = open(DataSize.ofKilobytes(1));
+        assertThat(compacted.read("a").get().balance()).isEqualByComparingTo("199");
+        compacted.close();
+
+        final EmbeddedAccountRepository reopened = open();
+        assertThat(reopened.read("a").get().balance()).isEqualByComparingTo("199");
+        assertThat(reopened.read("a").get().version()).isEqualTo(199L);
+        reopened.close();
+    }
+
+    @Test
+    public void saveShouldBeRefusedWhenTheAccountChangedSinceItWasRead() throws IOException {
+        final EmbeddedAccountRepository repository = open();
+        repository.save(new Account("a", "customer-a", new BigDecimal("10"), false));
+        final Account read = repository.read("a").get();
+
+        assertThat(repository.save(read.deposit(new BigDecimal("5")).get()).get().version()).isEqualTo(1L);
+        assertThat(repository.save(read.withdraw(new BigDecimal("5")).get()).getLeft()).isEqualTo(Error.CONCURRENT_MODIFICATION);
+        assertThat(repository.read("a").get().balance()).isEqualByComparingTo("15");
+        repository.close();
+    }
+}
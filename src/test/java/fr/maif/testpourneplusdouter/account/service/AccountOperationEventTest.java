@@ -0,0 +1,52 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import io.vavr.control.Either;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class AccountOperationEventTest {
+    @Test
+    public void operationsShouldBeRecordedWithTheirOutcome() throws Exception {
+        final Path file = Files.createTempFile("account-operation", ".jfr");
+        try(final Recording recording = new Recording()) {
+            recording.enable(AccountOperationEvent.class).withoutThreshold();
+            recording.start();
+
+            AccountService.recorded("withdraw", "a", null, () -> Either.left(Error.INSUFFICIENT_BALANCE));
+            AccountService.recorded("transfer", "a", "b", () -> Either.right("done"));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("fr.maif.account.Operation"))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .collect(Collectors.toList());
+        Files.delete(file);
+
+        assertThat(events.size()).isEqualTo(2);
+        assertThat(events.get(0).getString("operation")).isEqualTo("withdraw");
+        assertThat(events.get(0).getString("outcome")).isEqualTo("INSUFFICIENT_BALANCE");
+        assertThat(events.get(1).getString("targetAccountId")).isEqualTo("b");
+        assertThat(events.get(1).getString("outcome")).isEqualTo("OK");
+    }
+
+    @Test
+    public void alwaysOnSettingsShouldParse() throws Exception {
+        assertThat(FlightRecordings.configuration(FlightRecordings.ALWAYS_ON).getSettings()
+                .get("fr.maif.account.Operation#threshold")).isEqualTo("20 ms");
+    }
+}
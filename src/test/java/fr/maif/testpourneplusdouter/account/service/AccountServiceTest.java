@@ -5,6 +5,8 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import java.math.BigDecimal;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -85,6 +87,63 @@ public class AccountServiceTest {
 
 
     @Test
+    public void withdrawShouldBeRetriedWhenTheAccountChangedConcurrently() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        String accountId = UUID.randomUUID().toString();
+
+        Mockito.when(accountRepository.read(accountId))
+                .thenAnswer(__ -> Either.right(new Account(accountId, "customer", new BigDecimal("30"), false, 4)))
+                .thenAnswer(__ -> Either.right(new Account(accountId, "customer", new BigDecimal("50"), false, 5)));
+        Mockito.when(accountRepository.save(Mockito.any())).thenAnswer(params -> {
+            final Account account = (Account) params.getArguments()[0];
+            return account.version() == 4
+                    ? Either.left(Error.CONCURRENT_MODIFICATION)
+                    : Either.right(new Account(account.id(), account.customer(), account.balance(), false, account.version() + 1));
+        });
+        AccountService service = new AccountService(accountRepository, customerService);
+
+        final Either<Error, Account> maybeAccount = service.withdraw(accountId, new BigDecimal("20"));
+        assertThat(maybeAccount.isRight()).isTrue();
+        assertThat(maybeAccount.get().balance()).isEqualByComparingTo("30");
+        assertThat(maybeAccount.get().version()).isEqualTo(6L);
+    }
+
+    @Test
+    public void withdrawShouldFailAfterTooManyConcurrentModifications() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        String accountId = UUID.randomUUID().toString();
+
+        Mockito.when(accountRepository.read(accountId)).thenAnswer(
+                __ -> Either.right(new Account(accountId, "customer", new BigDecimal("30"), false))
+        );
+        Mockito.when(accountRepository.save(Mockito.any())).thenReturn(Either.left(Error.CONCURRENT_MODIFICATION));
+        AccountService service = new AccountService(accountRepository, customerService);
+
+        final Either<Error, Account> maybeAccount = service.withdraw(accountId, new BigDecimal("20"));
+        assertThat(maybeAccount.getLeft()).isEqualTo(Error.CONCURRENT_MODIFICATION);
+        Mockito.verify(accountRepository, Mockito.times(AccountService.DEFAULT_MAX_RETRIES + 1)).save(Mockito.any());
+    }
+
+    @Test
+    public void closingAClosedAccountShouldNotSaveIt() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        String accountId = UUID.randomUUID().toString();
+
+        Mockito.when(accountRepository.read(accountId)).thenAnswer(
+                __ -> Either.right(new Account(accountId, "customer", BigDecimal.ZERO, true, 3))
+        );
+        AccountService service = new AccountService(accountRepository, customerService);
+
+        final Either<Error, Account> maybeAccount = service.close(accountId);
+        assertThat(maybeAccount.get().closed()).isTrue();
+        Mockito.verify(accountRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
     public void transferShouldWorkProperly() {
         final CustomerService customerService = Mockito.mock(CustomerService.class);
         final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
@@ -95,17 +154,11 @@ public class AccountServiceTest {
         String customer2 = "customer2";
 
 
-        Mockito.when(accountRepository.read(accountId1)).thenAnswer(
-                __ -> Either.right(new Account(accountId1, customer1, new BigDecimal("30"), false))
-        );
-        Mockito.when(accountRepository.read(accountId2)).thenAnswer(
-                __ -> Either.right(new Account(accountId2, customer2, new BigDecimal("30"), false))
-        );
-        Mockito.when(accountRepository.save(new Account(accountId1, customer1, new BigDecimal("20"), false))).thenAnswer(
-                p -> Either.right((Account)p.getArguments()[0])
-        );
-        Mockito.when(accountRepository.save(new Account(accountId2, customer2, new BigDecimal("40"), false))).thenAnswer(
-                p -> Either.right((Account)p.getArguments()[0])
+        Mockito.when(accountRepository.transfer(Mockito.eq(accountId1), Mockito.eq(accountId2), Mockito.any())).thenAnswer(
+                p -> ((BiFunction<Account, Account, Either<Error, TransferResult>>)p.getArguments()[2]).apply(
+                        new Account(accountId1, customer1, new BigDecimal("30"), false),
+                        new Account(accountId2, customer2, new BigDecimal("30"), false)
+                )
         );
 
         AccountService service = new AccountService(accountRepository, customerService);
@@ -117,6 +170,65 @@ public class AccountServiceTest {
         assertThat(result.target().balance()).isEqualByComparingTo("40");
     }
 
+    @Test
+    public void transferShouldFailIfSourceAndTargetAreTheSameAccount() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        String accountId = UUID.randomUUID().toString();
+
+        AccountService service = new AccountService(accountRepository, customerService);
+        final Either<Error, TransferResult> transferResult = service.transfer(accountId, accountId, new BigDecimal("10"));
+
+        assertThat(transferResult.isLeft()).isTrue();
+        assertThat(transferResult.getLeft()).isEqualTo(Error.SAME_ACCOUNT_TRANSFER);
+        Mockito.verify(accountRepository, Mockito.never()).transfer(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void transferShouldReleaseTheVelocityDebitWhenTheWriteFails() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        final VelocityRules velocityRules = Mockito.mock(VelocityRules.class);
+        final Account source = new Account("foo", "customer1", new BigDecimal("30"), false);
+
+        Mockito.when(velocityRules.check(Mockito.any(), Mockito.any())).thenAnswer(p -> Either.right(p.getArguments()[0]));
+        Mockito.when(accountRepository.transfer(Mockito.eq("foo"), Mockito.eq("bar"), Mockito.any())).thenAnswer(
+                p -> ((BiFunction<Account, Account, Either<Error, TransferResult>>)p.getArguments()[2]).apply(
+                        source,
+                        new Account("bar", "customer2", new BigDecimal("30"), false)
+                ).flatMap(__ -> Either.left(Error.DB_ERROR))
+        );
+
+        AccountService service = new AccountService(accountRepository, customerService, velocityRules, OwnedAccountCache.disabled(), AccountService.DEFAULT_MAX_RETRIES);
+        final Either<Error, TransferResult> transferResult = service.transfer("foo", "bar", new BigDecimal("10"));
+
+        assertThat(transferResult.getLeft()).isEqualTo(Error.DB_ERROR);
+        Mockito.verify(velocityRules).release(source, new BigDecimal("10"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void stripedWithdrawShouldReleaseTheVelocityDebitWhenTheWriteFails() {
+        final CustomerService customerService = Mockito.mock(CustomerService.class);
+        final AccountRepository accountRepository = Mockito.mock(AccountRepository.class);
+        final VelocityRules velocityRules = Mockito.mock(VelocityRules.class);
+        final Account account = new Account("foo", "customer", new BigDecimal("30"), false);
+
+        Mockito.when(velocityRules.check(Mockito.any(), Mockito.any())).thenAnswer(p -> Either.right(p.getArguments()[0]));
+        Mockito.when(accountRepository.isStriped("foo")).thenReturn(true);
+        Mockito.when(accountRepository.update(Mockito.eq("foo"), Mockito.any())).thenAnswer(
+                p -> ((Function<Account, Either<Error, Account>>)p.getArguments()[1]).apply(account)
+                        .flatMap(__ -> Either.left(Error.DB_ERROR))
+        );
+
+        AccountService service = new AccountService(accountRepository, customerService, velocityRules, OwnedAccountCache.disabled(), AccountService.DEFAULT_MAX_RETRIES);
+        final Either<Error, Account> maybeAccount = service.withdraw("foo", new BigDecimal("10"));
+
+        assertThat(maybeAccount.getLeft()).isEqualTo(Error.DB_ERROR);
+        Mockito.verify(velocityRules).release(account, new BigDecimal("10"));
+    }
+
     @Test
     public void transferShouldWorkProperlyFineGrain() {
         final Either<Error, TransferResult> transferResults = AccountService.doTransfer(
@@ -0,0 +1,83 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class AuditRingBufferTest {
+    @Test
+    public void claimShouldFailWhenTheRingIsFullUntilSlotsAreConsumed() {
+        final AuditRingBuffer ring = new AuditRingBuffer(4);
+        for(int i = 0; i < 4; i++) {
+            final long sequence = ring.tryClaim();
+            ring.slot(sequence).accountId = "account-" + i;
+            ring.publish(sequence);
+        }
+
+        assertThat(ring.tryClaim()).isEqualTo(-1L);
+        assertThat(ring.lag()).isEqualTo(4L);
+
+        final List<String> consumed = new ArrayList<>();
+        assertThat(ring.drain(slot -> consumed.add(slot.accountId), 2)).isEqualTo(2);
+        assertThat(consumed.get(0)).isEqualTo("account-0");
+        assertThat(consumed.get(1)).isEqualTo("account-1");
+        assertThat(ring.tryClaim()).isEqualTo(4L);
+    }
+
+    @Test
+    public void drainShouldStopAtTheFirstUnpublishedSlot() {
+        final AuditRingBuffer ring = new AuditRingBuffer(8);
+        final long first = ring.tryClaim();
+        final long second = ring.tryClaim();
+        ring.publish(second);
+
+        assertThat(ring.drain(slot -> { }, 8)).isEqualTo(0);
+
+        ring.publish(first);
+        assertThat(ring.drain(slot -> { }, 8)).isEqualTo(2);
+        assertThat(ring.lag()).isEqualTo(0L);
+    }
+
+    @Test
+    public void concurrentProducersShouldNeitherLoseNorDuplicateRecords() throws InterruptedException {
+        final AuditRingBuffer ring = new AuditRingBuffer(64);
+        final int producers = 4;
+        final int perProducer = 50_000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        for(int p = 0; p < producers; p++) {
+            final long base = (long) p * perProducer;
+            new Thread(() -> {
+                for(int i = 0; i < perProducer; i++) {
+                    long sequence;
+                    while((sequence = ring.tryClaim()) < 0) {
+                        Thread.yield();
+                    }
+                    ring.slot(sequence).at = base + i;
+                    ring.publish(sequence);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        while(done.getCount() > 0 || ring.lag() > 0) {
+            final int drained = ring.drain(slot -> {
+                count.incrementAndGet();
+                sum.addAndGet(slot.at);
+            }, 16);
+            if(drained == 0) {
+                Thread.yield();
+            }
+        }
+
+        final long total = (long) producers * perProducer;
+        assertThat(count.get()).isEqualTo(total);
+        assertThat(sum.get()).isEqualTo(total * (total - 1) / 2);
+    }
+}
@@ -0,0 +1,57 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+import fr.maif.testpourneplusdouter.account.repository.AccountSavedEvent;
+
+public class BalanceHubTest {
+    @Test
+    public void subscribersShouldReceiveUpdatesOfTheirAccount() {
+        final BalanceHub hub = new BalanceHub(4, Runnable::run, false);
+        final List<Account> received = new ArrayList<>();
+        hub.subscribe("foo", received::add);
+
+        hub.onAccountSaved(new AccountSavedEvent(new Account("foo", "customer", new BigDecimal("10"), false)));
+        hub.onAccountSaved(new AccountSavedEvent(new Account("bar", "customer", new BigDecimal("20"), false)));
+
+        assertThat(received).hasSize(1);
+        assertThat(received.get(0).balance()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    public void slowSubscribersShouldOnlyKeepLatestUpdates() {
+        final List<Runnable> pending = new ArrayList<>();
+        final Executor manualExecutor = pending::add;
+        final BalanceHub hub = new BalanceHub(2, manualExecutor, false);
+        final List<Account> received = new ArrayList<>();
+        hub.subscribe("foo", received::add);
+
+        for(int i = 1; i <= 5; i++) {
+            hub.publish(new Account("foo", "customer", new BigDecimal(i), false));
+        }
+        pending.forEach(Runnable::run);
+
+        assertThat(received).extracting(Account::balance).containsExactly(new BigDecimal(4), new BigDecimal(5));
+        assertThat(hub.droppedUpdates()).isEqualTo(3);
+    }
+
+    @Test
+    public void failingSubscribersShouldBeRemoved() {
+        final BalanceHub hub = new BalanceHub(4, Runnable::run, false);
+        hub.subscribe("foo", account -> {
+            throw new IllegalStateException("client disconnected");
+        });
+
+        hub.publish(new Account("foo", "customer", BigDecimal.ONE, false));
+
+        assertThat(hub.subscriberCount()).isZero();
+    }
+}
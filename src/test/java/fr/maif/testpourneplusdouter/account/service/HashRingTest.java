@@ -0,0 +1,60 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class HashRingTest {
+    private static final List<String> NODES = List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    @Test
+    public void accountsShouldBeSpreadEvenlyAcrossNodes() {
+        final HashRing ring = new HashRing(NODES, 128);
+        final Map<String, Integer> owned = new HashMap<>();
+        for(int i = 0; i < 30_000; i++) {
+            owned.merge(ring.nodeFor(UUID.randomUUID().toString()), 1, Integer::sum);
+        }
+
+        for(String node : NODES) {
+            assertThat(owned.get(node)).isBetween(8_000, 12_000);
+        }
+    }
+
+    @Test
+    public void addingANodeShouldOnlyMoveAccountsToIt() {
+        final HashRing before = new HashRing(NODES, 128);
+        final HashRing after = new HashRing(List.of(NODES.get(0), NODES.get(1), NODES.get(2), "http://localhost:8084"), 128);
+
+        int moved = 0;
+        for(int i = 0; i < 10_000; i++) {
+            final String accountId = UUID.randomUUID().toString();
+            final String owner = after.nodeFor(accountId);
+            if(!owner.equals(before.nodeFor(accountId))) {
+                assertThat(owner).isEqualTo("http://localhost:8084");
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(1_500, 3_500);
+    }
+
+    @Test
+    public void exactlyOneNodeShouldOwnEachAccount() {
+        final List<ClusterMembership> memberships = List.of(
+                new ClusterMembership(true, "http://localhost:8081", String.join(",", NODES), 128),
+                new ClusterMembership(true, "http://localhost:8082/", String.join(", ", NODES), 128),
+                new ClusterMembership(true, "http://localhost:8083", String.join(",", NODES) + ",", 128)
+        );
+        for(int i = 0; i < 1_000; i++) {
+            final String accountId = UUID.randomUUID().toString();
+            final long owners = memberships.stream().filter(membership -> membership.isOwner(accountId)).count();
+
+            assertThat(owners).isEqualTo(1L);
+            assertThat(memberships.get(0).ownerOf(accountId)).isEqualTo(memberships.get(1).ownerOf(accountId));
+        }
+    }
+}
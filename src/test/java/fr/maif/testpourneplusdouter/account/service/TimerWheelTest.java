@@ -0,0 +1,56 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest {
+    @Test
+    public void itemsShouldExpireAtTheirDeadlineAcrossLevels() {
+        final TimerWheel<Long> wheel = new TimerWheel<>(10, 2, 3, 1_000);
+        final Random random = new Random(42);
+        for(int i = 0; i < 500; i++) {
+            final long deadline = 1_000 + random.nextInt((int) wheel.spanMillis());
+            assertThat(wheel.schedule(deadline, deadline)).isTrue();
+        }
+
+        final List<Long> late = new ArrayList<>();
+        final List<Long> expired = new ArrayList<>();
+        for(long now = 1_000; now <= 1_000 + wheel.spanMillis(); now += 10) {
+            final long tickStart = now;
+            wheel.advance(now, deadline -> {
+                expired.add(deadline);
+                if(deadline / 10 != tickStart / 10) {
+                    late.add(deadline);
+                }
+            });
+        }
+
+        assertThat(expired.size()).isEqualTo(500);
+        assertThat(late.isEmpty()).isTrue();
+        assertThat(wheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void overdueItemsShouldExpireOnNextAdvance() {
+        final TimerWheel<String> wheel = new TimerWheel<>(1_000, 6, 3, 10_000);
+        wheel.schedule(5_000, "missed during downtime");
+
+        final List<String> expired = new ArrayList<>();
+        wheel.advance(10_000, expired::add);
+
+        assertThat(expired.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void deadlinesBeyondTheSpanShouldBeRefused() {
+        final TimerWheel<String> wheel = new TimerWheel<>(1_000, 6, 3, 0);
+
+        assertThat(wheel.schedule(wheel.spanMillis(), "last")).isTrue();
+        assertThat(wheel.schedule(wheel.spanMillis() + 1_000, "too far")).isFalse();
+    }
+}
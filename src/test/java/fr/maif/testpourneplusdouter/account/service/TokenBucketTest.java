@@ -0,0 +1,33 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+    @Test
+    public void bucketShouldAllowBurstThenRefillAtConfiguredRate() {
+        final long start = 0;
+        final TokenBucket bucket = new TokenBucket(10, 3, start);
+
+        assertThat(bucket.tryAcquire(start)).isTrue();
+        assertThat(bucket.tryAcquire(start)).isTrue();
+        assertThat(bucket.tryAcquire(start)).isTrue();
+        assertThat(bucket.tryAcquire(start)).isFalse();
+
+        final long afterOnePermit = start + TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryAcquire(afterOnePermit)).isTrue();
+        assertThat(bucket.tryAcquire(afterOnePermit)).isFalse();
+    }
+
+    @Test
+    public void bucketShouldBeIdleOnceRefilled() {
+        final TokenBucket bucket = new TokenBucket(10, 3, 0);
+        bucket.tryAcquire(0);
+
+        assertThat(bucket.isIdle(TimeUnit.MILLISECONDS.toNanos(50))).isFalse();
+        assertThat(bucket.isIdle(TimeUnit.MILLISECONDS.toNanos(100))).isTrue();
+    }
+}
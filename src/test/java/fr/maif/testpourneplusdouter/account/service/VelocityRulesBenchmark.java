@@ -0,0 +1,80 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import fr.maif.testpourneplusdouter.account.model.Account;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures the cost of a velocity check with the default rules, on a single thread then on several threads hitting
+ * random accounts of a shared set, after a warm-up long enough for the JIT.
+ *
+ * Run from the test classpath, e.g. from the IDE, with arguments {@code [threads] [accounts] [checks per thread]}.
+ */
+public class VelocityRulesBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        final int checks = args.length > 2 ? Integer.parseInt(args[2]) : 5_000_000;
+
+        final VelocityRules rules = new VelocityRules(
+                true,
+                Long.MAX_VALUE, new BigDecimal("1000000000"), Long.MAX_VALUE, new BigDecimal("1000000000"),
+                Long.MAX_VALUE, new BigDecimal("1000000000"), Long.MAX_VALUE, new BigDecimal("1000000000"),
+                accountCount * 2,
+                new SimpleMeterRegistry()
+        );
+        final Account[] accounts = new Account[accountCount];
+        for(int i = 0; i < accountCount; i++) {
+            accounts[i] = new Account("account-" + i, "customer-" + (i / 2), new BigDecimal("1000"), false);
+        }
+        final BigDecimal amount = new BigDecimal("12.34");
+
+        run(rules, accounts, amount, 1, checks);
+        report("1 thread", run(rules, accounts, amount, 1, checks), checks);
+        report(threads + " threads", run(rules, accounts, amount, threads, checks), checks);
+    }
+
+    static long run(VelocityRules rules, Account[] accounts, BigDecimal amount, int threads, int checks)
+            throws InterruptedException {
+        final List<Thread> workers = new ArrayList<>(threads);
+        final long[] elapsed = new long[threads];
+        for(int t = 0; t < threads; t++) {
+            final int worker = t;
+            workers.add(new Thread(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final long start = System.nanoTime();
+                for(int i = 0; i < checks; i++) {
+                    if(rules.check(accounts[random.nextInt(accounts.length)], amount).isLeft()) {
+                        throw new IllegalStateException("Benchmark limits should never be reached");
+                    }
+                }
+                elapsed[worker] = System.nanoTime() - start;
+            }));
+        }
+        workers.forEach(Thread::start);
+        for(Thread worker : workers) {
+            worker.join();
+        }
+        long max = 0;
+        for(long time : elapsed) {
+            max = Math.max(max, time);
+        }
+        return max;
+    }
+
+    static void report(String label, long elapsedNanos, int checks) {
+        System.out.printf(
+                "%s: %.1f ns per check (%d checks per thread in %d ms)%n",
+                label,
+                (double) elapsedNanos / checks,
+                checks,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+        );
+    }
+}
@@ -0,0 +1,71 @@
+package fr.maif.testpourneplusdouter.account.service;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.maif.testpourneplusdouter.account.error.Error;
+import fr.maif.testpourneplusdouter.account.model.Account;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vavr.control.Either;
+
+public class VelocityRulesTest {
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    @Test
+    public void debitsShouldBeRefusedOverTheCountLimitUntilTheWindowSlides() {
+        final VelocityRules rules = rules(List.of(new VelocityRules.Rule(MINUTE, 3, 0)), List.of());
+        final Account account = new Account("account", "customer", new BigDecimal("1000"), false);
+
+        for(int i = 0; i < 3; i++) {
+            assertThat(rules.check(account, BigDecimal.ONE, 0).isRight()).isTrue();
+        }
+        final Either<Error, Account> refused = rules.check(account, BigDecimal.ONE, 0);
+        assertThat(refused.getLeft()).isEqualTo(Error.VELOCITY_LIMIT_EXCEEDED);
+
+        assertThat(rules.check(account, BigDecimal.ONE, MINUTE + MINUTE / 12).isRight()).isTrue();
+    }
+
+    @Test
+    public void customerLimitShouldApplyAcrossAccountsAndNotCountRefusedDebits() {
+        final VelocityRules rules = rules(
+                List.of(new VelocityRules.Rule(MINUTE, 0, 10_000)),
+                List.of(new VelocityRules.Rule(MINUTE, 0, 15_000))
+        );
+        final Account first = new Account("first", "customer", new BigDecimal("1000"), false);
+        final Account second = new Account("second", "customer", new BigDecimal("1000"), false);
+
+        assertThat(rules.check(first, new BigDecimal("100"), 0).isRight()).isTrue();
+        assertThat(rules.check(second, new BigDecimal("60"), 0).isLeft()).isTrue();
+        assertThat(rules.check(second, new BigDecimal("50"), 0).isRight()).isTrue();
+    }
+
+    @Test
+    public void releasedDebitsShouldNoLongerCount() {
+        final VelocityRules rules = rules(List.of(new VelocityRules.Rule(MINUTE, 1, 0)), List.of(new VelocityRules.Rule(MINUTE, 1, 0)));
+        final Account account = new Account("account", "customer", new BigDecimal("1000"), false);
+
+        assertThat(rules.check(account, BigDecimal.ONE, 0).isRight()).isTrue();
+        rules.release(account, BigDecimal.ONE, 0);
+
+        assertThat(rules.check(account, BigDecimal.ONE, 0).isRight()).isTrue();
+    }
+
+    @Test
+    public void idleCountersShouldBeEvicted() {
+        final SlidingWindowCounter counter = new SlidingWindowCounter(MINUTE, 12);
+        counter.add(0, 1, 100);
+
+        assertThat(counter.isIdle(MINUTE / 2)).isFalse();
+        assertThat(counter.exceeds(MINUTE / 2, 0, 99)).isTrue();
+        assertThat(counter.isIdle(MINUTE + MINUTE / 12)).isTrue();
+    }
+
+    private static VelocityRules rules(List<VelocityRules.Rule> accountRules, List<VelocityRules.Rule> customerRules) {
+        return new VelocityRules(true, accountRules, customerRules, 1000, new SimpleMeterRegistry());
+    }
+}
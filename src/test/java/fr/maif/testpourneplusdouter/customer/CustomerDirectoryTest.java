@@ -0,0 +1,64 @@
+package fr.maif.testpourneplusdouter.customer;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CustomerDirectoryTest {
+    @Test
+    public void lookupShouldIgnoreCase() {
+        final CustomerDirectory directory = new CustomerDirectory();
+        directory.put("BCavy", false);
+        directory.put("cdirand", true);
+
+        assertThat(directory.status("bcavy")).isEqualTo(CustomerStatus.ACTIVE);
+        assertThat(directory.status("CDIRAND")).isEqualTo(CustomerStatus.BANNED);
+        assertThat(directory.status("unknown")).isEqualTo(CustomerStatus.UNKNOWN);
+    }
+
+    @Test
+    public void putShouldUpdateBannedFlagOfExistingCustomer() {
+        final CustomerDirectory directory = new CustomerDirectory();
+        directory.put("bcavy", false);
+        directory.put("BCAVY", true);
+
+        assertThat(directory.status("bcavy")).isEqualTo(CustomerStatus.BANNED);
+        assertThat(directory.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void directoryShouldGrowPastItsInitialCapacity() {
+        final CustomerDirectory directory = new CustomerDirectory();
+        for(int i = 0; i < 10_000; i++) {
+            directory.put("customer-" + i, i % 7 == 0);
+        }
+
+        assertThat(directory.size()).isEqualTo(10_000);
+        assertThat(directory.status("customer-0")).isEqualTo(CustomerStatus.BANNED);
+        assertThat(directory.status("CUSTOMER-9999")).isEqualTo(CustomerStatus.ACTIVE);
+        assertThat(directory.status("customer-10000")).isEqualTo(CustomerStatus.UNKNOWN);
+    }
+
+    @Test
+    public void loadShouldReadCsvAndNdjsonSnapshots(@TempDir Path directoryPath) throws IOException {
+        final Path csv = Files.writeString(directoryPath.resolve("customers.csv"), "id,banned\nbcavy,false\nfvenere,true\n");
+        final Path ndjson = Files.writeString(directoryPath.resolve("customers.ndjson"), "{\"id\": \"sdaviet\", \"banned\": false}\n{\"id\": \"cdirand\", \"banned\": true}\n");
+        final CustomerDirectory directory = new CustomerDirectory();
+
+        directory.load(csv, new ObjectMapper());
+        assertThat(directory.status("bcavy")).isEqualTo(CustomerStatus.ACTIVE);
+        assertThat(directory.status("fvenere")).isEqualTo(CustomerStatus.BANNED);
+        assertThat(directory.size()).isEqualTo(2);
+
+        directory.load(ndjson, new ObjectMapper());
+        assertThat(directory.status("bcavy")).isEqualTo(CustomerStatus.UNKNOWN);
+        assertThat(directory.status("cdirand")).isEqualTo(CustomerStatus.BANNED);
+    }
+}